@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * Contributors:
+ *     Red Hat Inc - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.rpm.builder;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.packager.rpm.RpmSignatureTag;
+import org.eclipse.packager.rpm.header.Header;
+import org.eclipse.packager.rpm.signature.SignatureProcessor;
+
+/**
+ * Run a signature processor on a background thread.
+ * <p>
+ * The header and payload data is copied into blocks, which are handed over
+ * to the background thread through a bounded queue. This allows the data to
+ * be hashed by several processors at the same time, instead of one after the
+ * other. The result of the processor is added to the signature header on the
+ * calling thread, when {@link #finish(Header)} is called.
+ * </p>
+ * <p>
+ * The processor must be closed, to stop the background thread in case
+ * {@link #finish(Header)} is never called.
+ * </p>
+ */
+public class BackgroundSignatureProcessor implements SignatureProcessor, AutoCloseable {
+
+    private static final int BLOCK_SIZE = 256 * 1024;
+
+    private static final int QUEUE_SIZE = 16;
+
+    // how often a blocked caller checks if the background thread is still alive
+    private static final long SUBMIT_TIMEOUT_MILLIS = 100;
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private static final class Chunk {
+        private final boolean header;
+
+        private final ByteBuffer data;
+
+        Chunk(final boolean header, final ByteBuffer data) {
+            this.header = header;
+            this.data = data;
+        }
+    }
+
+    private static final Chunk END = new Chunk(false, null);
+
+    private final SignatureProcessor delegate;
+
+    private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private Thread thread;
+
+    private ByteBuffer pending;
+
+    private volatile boolean aborted;
+
+    private volatile Throwable failure;
+
+    public BackgroundSignatureProcessor(final SignatureProcessor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void init(final long archiveSize) {
+        // called before any data, so still on the calling thread
+        this.delegate.init(archiveSize);
+    }
+
+    @Override
+    public void feedHeader(final ByteBuffer header) {
+        flush();
+
+        final ByteBuffer copy = ByteBuffer.allocate(header.remaining());
+        copy.put(header).flip();
+        submit(new Chunk(true, copy));
+    }
+
+    @Override
+    public void feedPayloadData(final ByteBuffer data) {
+        // the caller re-uses its buffer, so the data must be copied
+        while (data.hasRemaining()) {
+            if (this.pending == null) {
+                this.pending = ByteBuffer.allocate(BLOCK_SIZE);
+            }
+
+            final int len = Math.min(data.remaining(), this.pending.remaining());
+            final ByteBuffer slice = data.slice();
+            slice.limit(len);
+            this.pending.put(slice);
+            data.position(data.position() + len);
+
+            if (!this.pending.hasRemaining()) {
+                flush();
+            }
+        }
+    }
+
+    @Override
+    public void finish(final Header<RpmSignatureTag> signature) {
+        flush();
+        submit(END);
+
+        try {
+            this.done.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for signature processor", e);
+        }
+
+        checkFailure();
+
+        this.delegate.finish(signature);
+    }
+
+    @Override
+    public void close() {
+        if (this.thread == null || this.done.getCount() == 0) {
+            return;
+        }
+
+        // the background thread will skip all remaining data
+        this.aborted = true;
+        this.queue.clear();
+        this.queue.offer(END);
+    }
+
+    private void flush() {
+        if (this.pending != null && this.pending.position() > 0) {
+            this.pending.flip();
+            submit(new Chunk(false, this.pending));
+        }
+        this.pending = null;
+    }
+
+    private void submit(final Chunk chunk) {
+        checkFailure();
+
+        if (this.thread == null) {
+            this.thread = new Thread(this::run, "rpm-sign-" + COUNTER.incrementAndGet());
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        try {
+            while (!this.queue.offer(chunk, SUBMIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+                if (this.done.getCount() == 0) {
+                    throw new IllegalStateException("Signature processor stopped unexpectedly");
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while feeding signature processor", e);
+        }
+    }
+
+    private void checkFailure() {
+        final Throwable e = this.failure;
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        if (e != null) {
+            throw new IllegalStateException("Signature processor failed", e);
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                final Chunk chunk = this.queue.take();
+                if (chunk == END) {
+                    break;
+                }
+                if (this.aborted || this.failure != null) {
+                    // keep draining, so that the caller doesn't block
+                    continue;
+                }
+                try {
+                    if (chunk.header) {
+                        this.delegate.feedHeader(chunk.data);
+                    } else {
+                        this.delegate.feedPayloadData(chunk.data);
+                    }
+                } catch (final Throwable e) {
+                    // also errors, the thread must keep draining the queue
+                    this.failure = e;
+                }
+            }
+        } catch (final InterruptedException e) {
+            this.failure = new IllegalStateException("Signature processor interrupted", e);
+        } finally {
+            this.done.countDown();
+        }
+    }
+}
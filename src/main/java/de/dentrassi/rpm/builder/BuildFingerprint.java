@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * Contributors:
+ *     Red Hat Inc - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * A fingerprint of all inputs of an RPM build.
+ * <p>
+ * Values are fed into a SHA-256 digest, together with their name. Simple
+ * values are added by their string representation, collections and arrays
+ * element by element, and configuration objects of the mojo by walking their
+ * fields. Files are added by their path, size and modification timestamp.
+ * </p>
+ * <p>
+ * The fingerprint is stored in the build cache, next to the RPM file. So the
+ * passphrase of a {@link Signature} is never added, as it could be guessed
+ * from the fingerprint.
+ * </p>
+ */
+public class BuildFingerprint {
+
+    private static final String CONFIGURATION_PACKAGE = "de.dentrassi.rpm.builder";
+
+    private final MessageDigest digest;
+
+    public BuildFingerprint() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+
+    /**
+     * Add a named value to the fingerprint
+     *
+     * @param name
+     *            the name of the value
+     * @param value
+     *            the value, may be {@code null}
+     * @return this instance, for chaining
+     * @throws IOException
+     *             if the state of a referenced file could not be read
+     */
+    public BuildFingerprint add(final String name, final Object value) throws IOException {
+        put("name", name);
+        addValue(value);
+        return this;
+    }
+
+    /**
+     * Add the state of a file to the fingerprint
+     * <p>
+     * This adds the path, the size and the last modification timestamp of the
+     * file, or the target if the file is a symbolic link. Missing files are
+     * recorded as missing.
+     * </p>
+     *
+     * @param file
+     *            the file to add
+     * @return this instance, for chaining
+     * @throws IOException
+     *             if the state of the file could not be read
+     */
+    public BuildFingerprint addFile(final Path file) throws IOException {
+        put("path", file.toString());
+
+        if (Files.isSymbolicLink(file)) {
+            put("link", Files.readSymbolicLink(file).toString());
+        }
+
+        if (!Files.exists(file)) {
+            put("state", "missing");
+        } else if (Files.isDirectory(file)) {
+            put("state", "directory");
+        } else {
+            put("size", Long.toString(Files.size(file)));
+            put("mtime", Long.toString(Files.getLastModifiedTime(file).toMillis()));
+        }
+
+        return this;
+    }
+
+    private void addValue(final Object value) throws IOException {
+        if (value == null) {
+            put("null", "");
+        } else if (value instanceof CharSequence || value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Enum<?>) {
+            put(value.getClass().getSimpleName(), value.toString());
+        } else if (value instanceof File) {
+            addFile(((File) value).toPath());
+        } else if (value instanceof Path) {
+            addFile((Path) value);
+        } else if (value instanceof Set<?>) {
+            // the iteration order of sets may not be stable
+            final List<String> values = ((Set<?>) value).stream().map(String::valueOf).sorted().collect(Collectors.toList());
+            put("set", Integer.toString(values.size()));
+            for (final String v : values) {
+                put("element", v);
+            }
+        } else if (value instanceof Collection<?>) {
+            final Collection<?> values = (Collection<?>) value;
+            put("collection", Integer.toString(values.size()));
+            for (final Object v : values) {
+                addValue(v);
+            }
+        } else if (value.getClass().isArray()) {
+            final int length = Array.getLength(value);
+            put("array", Integer.toString(length));
+            for (int i = 0; i < length; i++) {
+                addValue(Array.get(value, i));
+            }
+        } else if (value instanceof Map<?, ?>) {
+            final List<Map.Entry<?, ?>> entries = new ArrayList<>(((Map<?, ?>) value).entrySet());
+            entries.sort(Comparator.comparing(e -> String.valueOf(e.getKey())));
+            put("map", Integer.toString(entries.size()));
+            for (final Map.Entry<?, ?> entry : entries) {
+                put("key", String.valueOf(entry.getKey()));
+                addValue(entry.getValue());
+            }
+        } else if (value instanceof Signature) {
+            addSignature((Signature) value);
+        } else if (value.getClass().getName().startsWith(CONFIGURATION_PACKAGE)) {
+            addFields(value);
+        } else {
+            put(value.getClass().getName(), value.toString());
+        }
+    }
+
+    private void addSignature(final Signature signature) throws IOException {
+        put("object", Signature.class.getName());
+
+        // everything but the passphrase
+        add("keyId", signature.getKeyId());
+        add("keyringFile", signature.getKeyringFile());
+        add("hashAlgorithm", signature.getHashAlgorithm());
+        add("skip", signature.isSkip());
+    }
+
+    private void addFields(final Object value) throws IOException {
+        put("object", value.getClass().getName());
+
+        for (Class<?> clazz = value.getClass(); clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            final List<Field> fields = new ArrayList<>();
+            for (final Field field : clazz.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                    fields.add(field);
+                }
+            }
+            fields.sort(Comparator.comparing(Field::getName));
+
+            for (final Field field : fields) {
+                field.setAccessible(true);
+                try {
+                    add(field.getName(), field.get(value));
+                } catch (final IllegalAccessException e) {
+                    throw new IllegalStateException(String.format("Unable to read field '%s' of %s", field.getName(), clazz.getName()), e);
+                }
+            }
+        }
+    }
+
+    private void put(final String type, final String value) {
+        final byte[] data = value.getBytes(UTF_8);
+        this.digest.update(type.getBytes(UTF_8));
+        this.digest.update((byte) 0);
+        this.digest.update(Integer.toString(data.length).getBytes(UTF_8));
+        this.digest.update((byte) 0);
+        this.digest.update(data);
+    }
+
+    /**
+     * Finish the fingerprint
+     * <p>
+     * The instance must not be used after calling this method.
+     * </p>
+     *
+     * @return the fingerprint, as hex encoded string
+     */
+    public String build() {
+        return Hex.encodeHexString(this.digest.digest());
+    }
+}
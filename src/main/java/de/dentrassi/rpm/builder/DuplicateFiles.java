@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * Contributors:
+ *     Red Hat Inc - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.rpm.builder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Find files with identical content.
+ * <p>
+ * Files are grouped by their size first. Only files sharing their size with
+ * other files are digested, and files with the same digest are compared byte
+ * by byte, before they are considered identical.
+ * </p>
+ */
+public final class DuplicateFiles {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private DuplicateFiles() {
+    }
+
+    /**
+     * Find duplicate files
+     * <p>
+     * The first file of a set of identical files, in the order of the
+     * provided list, is considered the original. Empty files are never
+     * considered duplicates.
+     * </p>
+     *
+     * @param files
+     *            the regular files to check
+     * @param digests
+     *            the digests to use for comparing the files
+     * @return a map of duplicate files to their original, in the order of the
+     *         provided list
+     * @throws IOException
+     *             if reading the files fails
+     */
+    public static Map<Path, Path> find(final List<Path> files, final FileDigests digests) throws IOException {
+        final Map<Long, List<Path>> bySize = new LinkedHashMap<>();
+        for (final Path file : files) {
+            final long size = Files.size(file);
+            if (size > 0) {
+                bySize.computeIfAbsent(size, s -> new ArrayList<>()).add(file);
+            }
+        }
+
+        final List<Path> candidates = bySize.values().stream()
+                .filter(group -> group.size() > 1)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+
+        if (candidates.isEmpty()) {
+            return Map.of();
+        }
+
+        digests.submit(candidates);
+
+        final Map<Path, Path> duplicates = new HashMap<>();
+        for (final List<Path> group : bySize.values()) {
+            if (group.size() < 2) {
+                continue;
+            }
+
+            // digest -> originals, different content may share a digest
+            final Map<String, List<Path>> originals = new HashMap<>();
+            for (final Path file : group) {
+                final List<Path> known = originals.computeIfAbsent(digests.get(file).getDigestHex(), d -> new ArrayList<>());
+                final Path original = findEqual(known, file);
+                if (original != null) {
+                    duplicates.put(file, original);
+                } else {
+                    known.add(file);
+                }
+            }
+        }
+
+        final Map<Path, Path> result = new LinkedHashMap<>();
+        for (final Path file : files) {
+            final Path original = duplicates.get(file);
+            if (original != null) {
+                result.put(file, original);
+            }
+        }
+        return result;
+    }
+
+    private static Path findEqual(final List<Path> originals, final Path file) throws IOException {
+        for (final Path original : originals) {
+            if (contentEquals(original, file)) {
+                return original;
+            }
+        }
+        return null;
+    }
+
+    private static boolean contentEquals(final Path file1, final Path file2) throws IOException {
+        final byte[] buffer1 = new byte[BUFFER_SIZE];
+        final byte[] buffer2 = new byte[BUFFER_SIZE];
+
+        try (InputStream in1 = Files.newInputStream(file1);
+                InputStream in2 = Files.newInputStream(file2)) {
+            while (true) {
+                final int n1 = in1.readNBytes(buffer1, 0, BUFFER_SIZE);
+                final int n2 = in2.readNBytes(buffer2, 0, BUFFER_SIZE);
+                if (n1 != n2) {
+                    return false;
+                }
+                if (n1 == 0) {
+                    return true;
+                }
+                if (!Arrays.equals(buffer1, 0, n1, buffer2, 0, n2)) {
+                    return false;
+                }
+            }
+        }
+    }
+}
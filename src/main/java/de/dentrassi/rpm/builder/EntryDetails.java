@@ -10,6 +10,7 @@
  *     Red Hat Inc - add new file flags
  *     Peter Wilkinson - add skip entry flag
  *     Oliver Matz - add verify flags
+ *     Red Hat Inc - allow overlaying entry details
  *******************************************************************************/
 package de.dentrassi.rpm.builder;
 
@@ -213,6 +214,52 @@ public class EntryDetails {
         return didApply;
     }
 
+    /**
+     * Overlay the details of another entry on top of this one
+     * <p>
+     * Applying the result is equivalent to first applying this instance and
+     * then the other instance.
+     * </p>
+     *
+     * @param other
+     *            the details to overlay
+     */
+    void overlay(final EntryDetails other) {
+        if (other.configuration != null) {
+            this.configuration = other.configuration;
+        }
+        if (other.documentation != null) {
+            this.documentation = other.documentation;
+        }
+        if (other.license != null) {
+            this.license = other.license;
+        }
+        if (other.readme != null) {
+            this.readme = other.readme;
+        }
+        if (other.ghost != null) {
+            this.ghost = other.ghost;
+        }
+        if (other.missingOk != null) {
+            this.missingOk = other.missingOk;
+        }
+        if (other.noreplace != null) {
+            this.noreplace = other.noreplace;
+        }
+        if (other.user != null && !other.user.isEmpty()) {
+            this.user = other.user;
+        }
+        if (other.group != null && !other.group.isEmpty()) {
+            this.group = other.group;
+        }
+        if (other.mode != null) {
+            this.mode = other.mode;
+        }
+        if (other.verify != null) {
+            this.verify = other.verify;
+        }
+    }
+
     private void setFlag(final FileInformation info, final FileFlags flag) {
         final Set<FileFlags> flags = info.getFileFlags();
         if (flags == null) {
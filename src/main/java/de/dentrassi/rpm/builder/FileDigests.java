@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * Contributors:
+ *     Red Hat Inc - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.rpm.builder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.binary.Hex;
+import org.eclipse.packager.rpm.build.DigestAlgorithm;
+
+/**
+ * Computes file digests on a pool of worker threads.
+ * <p>
+ * Files are scheduled in bulk, and their digests can be fetched one by one,
+ * in any order, waiting only for the digest of the requested file.
+ * </p>
+ */
+public class FileDigests implements AutoCloseable {
+
+    public static final class FileDigest {
+        private final long size;
+
+        private final byte[] digest;
+
+        FileDigest(final long size, final byte[] digest) {
+            this.size = size;
+            this.digest = digest;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+
+        public byte[] getDigest() {
+            return this.digest.clone();
+        }
+
+        public String getDigestHex() {
+            return Hex.encodeHexString(this.digest);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[size: %s, digest: %s]", this.size, getDigestHex());
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DigestAlgorithm algorithm;
+
+    private final ExecutorService executor;
+
+    private final Map<Path, Future<FileDigest>> digests = new ConcurrentHashMap<>();
+
+    public FileDigests(final DigestAlgorithm algorithm, final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException(String.format("Number of digest threads must be positive, was: %s", threads));
+        }
+
+        this.algorithm = algorithm;
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "rpm-digest-" + this.counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public DigestAlgorithm getAlgorithm() {
+        return this.algorithm;
+    }
+
+    /**
+     * Schedule files for digesting
+     * <p>
+     * Files which are already scheduled will not be processed a second time.
+     * </p>
+     *
+     * @param files
+     *            the files to digest
+     */
+    public void submit(final Collection<Path> files) {
+        for (final Path file : files) {
+            this.digests.computeIfAbsent(file, f -> this.executor.submit(() -> digest(f)));
+        }
+    }
+
+    /**
+     * Get the digest of a file
+     * <p>
+     * If the file was not scheduled before, it will be scheduled now. This
+     * method waits for the digest to be computed.
+     * </p>
+     *
+     * @param file
+     *            the file to get the digest for
+     * @return the size and digest of the file
+     * @throws IOException
+     *             if reading the file failed
+     */
+    public FileDigest get(final Path file) throws IOException {
+        final Future<FileDigest> future = this.digests.computeIfAbsent(file, f -> this.executor.submit(() -> digest(f)));
+
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for file digest", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(String.format("Failed to digest file: %s", file), e.getCause());
+        }
+    }
+
+    private FileDigest digest(final Path file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = this.algorithm.createDigest();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        long size = 0;
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+                size += n;
+            }
+        }
+
+        return new FileDigest(size, digest.digest());
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * Contributors:
+ *     Red Hat Inc - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.rpm.builder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.packager.rpm.build.BuilderContext;
+import org.eclipse.packager.rpm.build.FileInformation;
+import org.eclipse.packager.rpm.build.PayloadEntryType;
+
+/**
+ * A cache of file information templates.
+ * <p>
+ * The file information of an entry only depends on the type of the entry,
+ * the type of the source object (as evaluated by the default provider), and
+ * the outcome of the ruleset. The first entry with a specific combination
+ * creates a template, all further entries get a copy of it.
+ * </p>
+ */
+public class FileInformationCache {
+
+    private static final class Key {
+        private final RulesetEvaluator.Outcome outcome;
+
+        private final PayloadEntryType type;
+
+        private final Class<?> objectType;
+
+        Key(final RulesetEvaluator.Outcome outcome, final PayloadEntryType type, final Class<?> objectType) {
+            this.outcome = outcome;
+            this.type = type;
+            this.objectType = objectType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.outcome, this.type, this.objectType);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return Objects.equals(this.outcome, other.outcome) && this.type == other.type && this.objectType == other.objectType;
+        }
+    }
+
+    private final Map<Key, FileInformation> templates = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Provide the file information for an entry
+     *
+     * @param outcome
+     *            the outcome of the ruleset, may be {@code null} if there is
+     *            no ruleset
+     * @param targetName
+     *            the target name of the entry
+     * @param object
+     *            the source object of the entry
+     * @param type
+     *            the type of the entry
+     * @return a new file information instance, owned by the caller
+     * @throws IOException
+     *             if the default provider fails
+     */
+    public FileInformation provide(final RulesetEvaluator.Outcome outcome, final String targetName, final Object object, final PayloadEntryType type) throws IOException {
+        final Key key = new Key(outcome, type, object != null ? object.getClass() : null);
+
+        final FileInformation template = this.templates.get(key);
+        if (template != null) {
+            this.hits.increment();
+            return copy(template);
+        }
+
+        this.misses.increment();
+
+        final FileInformation result = BuilderContext.defaultProvider().provide(targetName, object, type);
+        if (outcome != null) {
+            outcome.apply(result);
+        }
+
+        this.templates.putIfAbsent(key, copy(result));
+
+        return result;
+    }
+
+    private static FileInformation copy(final FileInformation template) {
+        // the constructor sets the timestamp to "now"
+        final FileInformation result = new FileInformation();
+        result.setUser(template.getUser());
+        result.setGroup(template.getGroup());
+        result.setMode(template.getMode());
+        result.setFileFlags(template.getFileFlags());
+        result.setVerifyFlags(template.getVerifyFlags());
+        return result;
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    public int getTemplates() {
+        return this.templates.size();
+    }
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * Contributors:
+ *     Red Hat Inc - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.rpm.builder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.compress.archivers.cpio.CpioConstants;
+import org.eclipse.packager.rpm.FileFlags;
+import org.eclipse.packager.rpm.RpmTag;
+import org.eclipse.packager.rpm.info.RpmInformations;
+import org.eclipse.packager.rpm.parse.InputHeader;
+
+/**
+ * The file list, as recorded in the package header
+ * <p>
+ * Ghost entries are not part of the payload, and so are not part of the
+ * file list.
+ * </p>
+ */
+final class HeaderFileList {
+    private final List<String> names = new ArrayList<>();
+
+    private final Set<String> files = new HashSet<>();
+
+    private final Set<String> directories = new HashSet<>();
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    /**
+     * Create the file list from the header
+     *
+     * @return the file list, or {@code null} if the header does not
+     *         contain a usable file list
+     */
+    static HeaderFileList fromHeader(final InputHeader<RpmTag> header) {
+        final String[] baseNames = toStrings(header.getTag(RpmTag.BASENAMES));
+        final String[] dirNames = toStrings(header.getTag(RpmTag.DIRNAMES));
+        final int[] dirIndexes = toInts(header.getTag(RpmTag.DIR_INDEXES));
+        final int[] modes = toInts(header.getTag(RpmTag.FILE_MODES));
+        final int[] flags = toInts(header.getTag(RpmTag.FILE_FLAGS));
+
+        if (baseNames == null || dirNames == null || dirIndexes == null || modes == null || flags == null) {
+            return null;
+        }
+
+        final int count = baseNames.length;
+        if (dirIndexes.length != count || modes.length != count || flags.length != count) {
+            return null;
+        }
+
+        final HeaderFileList result = new HeaderFileList();
+
+        for (int i = 0; i < count; i++) {
+            if ((flags[i] & FileFlags.GHOST.getValue()) != 0) {
+                // ghost files are not part of the payload
+                continue;
+            }
+            if (dirIndexes[i] < 0 || dirIndexes[i] >= dirNames.length) {
+                return null;
+            }
+
+            final String name = RpmInformations.normalize(dirNames[dirIndexes[i]] + baseNames[i]);
+            result.names.add(name);
+            result.indexes.put(name, i);
+
+            switch (modes[i] & CpioConstants.S_IFMT) {
+                case CpioConstants.C_ISREG:
+                    result.files.add(name);
+                    break;
+                case CpioConstants.C_ISDIR:
+                    result.directories.add(name);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return result;
+    }
+
+    static String[] toStrings(final Object value) {
+        if (value instanceof String[]) {
+            return (String[]) value;
+        }
+        if (value instanceof String) {
+            return new String[] { (String) value };
+        }
+        return null;
+    }
+
+    static int[] toInts(final Object value) {
+        if (value instanceof Number) {
+            return new int[] { ((Number) value).intValue() };
+        }
+        if (!(value instanceof Number[])) {
+            return null;
+        }
+
+        final Number[] values = (Number[]) value;
+        final int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            // modes are stored as unsigned 16 bit values
+            result[i] = values[i] instanceof Short ? values[i].shortValue() & 0xFFFF : values[i].intValue();
+        }
+        return result;
+    }
+
+    /**
+     * Convert a numeric header value into unsigned long values
+     */
+    static long[] toLongs(final Object value) {
+        if (value instanceof Number) {
+            return new long[] { toUnsignedLong((Number) value) };
+        }
+        if (!(value instanceof Number[])) {
+            return null;
+        }
+
+        final Number[] values = (Number[]) value;
+        final long[] result = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = toUnsignedLong(values[i]);
+        }
+        return result;
+    }
+
+    private static long toUnsignedLong(final Number value) {
+        if (value instanceof Integer) {
+            return value.intValue() & 0xFFFFFFFFL;
+        }
+        if (value instanceof Short) {
+            return value.shortValue() & 0xFFFFL;
+        }
+        return value.longValue();
+    }
+
+    /**
+     * Get the normalized names of all entries of the payload
+     *
+     * @return the names, in the order of the header
+     */
+    public List<String> getNames() {
+        return this.names;
+    }
+
+    public Set<String> getFiles() {
+        return this.files;
+    }
+
+    public Set<String> getDirectories() {
+        return this.directories;
+    }
+
+    /**
+     * Get the index of an entry in the file related header tags
+     *
+     * @param name
+     *            the normalized name of the entry
+     * @return the index, or {@code -1} if the entry is not part of the file
+     *         list
+     */
+    public int getIndex(final String name) {
+        final Integer result = this.indexes.get(name);
+        return result != null ? result : -1;
+    }
+}
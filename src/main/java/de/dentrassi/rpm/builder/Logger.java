@@ -8,9 +8,12 @@
  * Contributors:
  *     IBH SYSTEMS GmbH - initial API and implementation
  *     Red Hat Inc - add log level
+ *     Red Hat Inc - lazy, level guarded logging
  *******************************************************************************/
 package de.dentrassi.rpm.builder;
 
+import java.util.function.Supplier;
+
 import org.apache.maven.plugin.logging.Log;
 
 public class Logger {
@@ -20,15 +23,38 @@ public class Logger {
         this.log = log;
     }
 
+    public boolean isDebugEnabled() {
+        return this.log.isDebugEnabled();
+    }
+
     public void debug(final String format, final Object... values) {
-        this.log.debug(String.format(format, values));
+        if (this.log.isDebugEnabled()) {
+            this.log.debug(String.format(format, values));
+        }
+    }
+
+    /**
+     * Log a debug message, which is only created when debug logging is
+     * enabled.
+     *
+     * @param message
+     *            the supplier of the message
+     */
+    public void debug(final Supplier<String> message) {
+        if (this.log.isDebugEnabled()) {
+            this.log.debug(message.get());
+        }
     }
 
     public void info(final String format, final Object... values) {
-        this.log.info(String.format(format, values));
+        if (this.log.isInfoEnabled()) {
+            this.log.info(String.format(format, values));
+        }
     }
 
     public void warn(final String format, final Object... values) {
-        this.log.warn(String.format(format, values));
+        if (this.log.isWarnEnabled()) {
+            this.log.warn(String.format(format, values));
+        }
     }
 }
@@ -113,7 +113,8 @@ public class MissingDirectoryGeneratorInterceptor implements BuilderContext {
                             mojoProvider.getRuleId(),
                             null,
                             mojoProvider.getLogger(),
-                            mojoProvider.getTimestamp()));
+                            mojoProvider.getTimestamp(),
+                            mojoProvider.getCache()));
             generatedDirectories.add(intermediateDirectory);
         }
     }
@@ -8,6 +8,8 @@
  * Contributors:
  *     IBH SYSTEMS GmbH - initial API and implementation
  *     Red Hat Inc - upgrade to package drone 0.14.0
+ *     Red Hat Inc - only format log messages when there is a logger
+ *     Red Hat Inc - cache file information templates
  *******************************************************************************/
 package de.dentrassi.rpm.builder;
 
@@ -32,13 +34,19 @@ public class MojoFileInformationProvider implements FileInformationProvider<Obje
 
     private final Instant timestamp;
 
+    private final FileInformationCache cache;
+
     public MojoFileInformationProvider(final RulesetEvaluator rulesetEval, final String ruleId, final PackageEntry entry, final Consumer<String> logger, Instant timestamp) {
+        this(rulesetEval, ruleId, entry, logger, timestamp, null);
+    }
+
+    public MojoFileInformationProvider(final RulesetEvaluator rulesetEval, final String ruleId, final PackageEntry entry, final Consumer<String> logger, Instant timestamp, final FileInformationCache cache) {
         this.rulesetEval = Objects.requireNonNull(rulesetEval);
         this.ruleId = ruleId;
         this.entry = entry;
-        this.logger = logger != null ? logger : (s) -> {
-        };
+        this.logger = logger;
         this.timestamp = timestamp;
+        this.cache = cache;
     }
 
     @Override
@@ -50,7 +58,7 @@ public class MojoFileInformationProvider implements FileInformationProvider<Obje
         }
 
         if (this.entry != null) {
-            if (this.entry.apply(result)) {
+            if (this.entry.apply(result) && this.logger != null) {
                 this.logger.accept(String.format("local override = %s", result));
             }
         }
@@ -63,14 +71,27 @@ public class MojoFileInformationProvider implements FileInformationProvider<Obje
     }
 
     private FileInformation provideByRule(final String targetName, final Object object, final PayloadEntryType type) throws IOException {
-        final FileInformation result = BuilderContext.defaultProvider().provide(targetName, object, type);
+        final boolean hasRuleset = this.ruleId != null && !this.ruleId.isEmpty();
 
-        if (this.ruleId != null && !this.ruleId.isEmpty()) {
+        if (hasRuleset && this.logger != null) {
             this.logger.accept(String.format("run ruleset: '%s'", this.ruleId));
-            this.rulesetEval.eval(this.ruleId, object, type, targetName, result);
         }
 
-        this.logger.accept(String.format("fileInformation = %s", result));
+        final FileInformation result;
+
+        if (this.cache != null) {
+            final RulesetEvaluator.Outcome outcome = hasRuleset ? this.rulesetEval.evaluate(this.ruleId, type, targetName) : null;
+            result = this.cache.provide(outcome, targetName, object, type);
+        } else {
+            result = BuilderContext.defaultProvider().provide(targetName, object, type);
+            if (hasRuleset) {
+                this.rulesetEval.eval(this.ruleId, object, type, targetName, result);
+            }
+        }
+
+        if (this.logger != null) {
+            this.logger.accept(String.format("fileInformation = %s", result));
+        }
 
         return result;
     }
@@ -79,6 +100,11 @@ public class MojoFileInformationProvider implements FileInformationProvider<Obje
         return rulesetEval;
     }
 
+    /**
+     * Get the logger of this provider
+     *
+     * @return the logger, or {@code null} if no messages should be logged
+     */
     public Consumer<String> getLogger() {
         return logger;
     }
@@ -94,4 +120,8 @@ public class MojoFileInformationProvider implements FileInformationProvider<Obje
     public Instant getTimestamp() {
         return timestamp;
     }
+
+    public FileInformationCache getCache() {
+        return cache;
+    }
 }
@@ -7,6 +7,7 @@
  *
  * Contributors:
  *     IBH SYSTEMS GmbH - initial API and implementation
+ *     Red Hat Inc - link duplicate files of collectors
  *******************************************************************************/
 package de.dentrassi.rpm.builder;
 
@@ -21,6 +22,8 @@ public class PackageEntry extends EntryDetails {
 
         private boolean symbolicLinks = false;
 
+        private boolean linkDuplicates = false;
+
         private String[] includes;
 
         private String[] excludes;
@@ -49,6 +52,14 @@ public class PackageEntry extends EntryDetails {
             return this.symbolicLinks;
         }
 
+        public void setLinkDuplicates(final boolean linkDuplicates) {
+            this.linkDuplicates = linkDuplicates;
+        }
+
+        public boolean isLinkDuplicates() {
+            return this.linkDuplicates;
+        }
+
         public void setIncludes(final String[] includes) {
             this.includes = includes;
         }
@@ -67,7 +78,7 @@ public class PackageEntry extends EntryDetails {
 
         @Override
         public String toString() {
-            return String.format("[collector - from: %s,  directories: %s, symLinks: %s, includes: %s, excludes: %s]", this.from, this.directories, this.symbolicLinks, Arrays.toString(this.includes), Arrays.toString(this.excludes));
+            return String.format("[collector - from: %s,  directories: %s, symLinks: %s, linkDuplicates: %s, includes: %s, excludes: %s]", this.from, this.directories, this.symbolicLinks, this.linkDuplicates, Arrays.toString(this.includes), Arrays.toString(this.excludes));
         }
     }
 
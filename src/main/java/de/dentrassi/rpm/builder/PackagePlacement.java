@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * Contributors:
+ *     Red Hat Inc - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.rpm.builder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * The way package files are placed into a YUM repository
+ */
+public enum PackagePlacement {
+    /**
+     * Copy the package file, while reading it
+     */
+    COPY,
+    /**
+     * Create a hard link to the package file.
+     * <p>
+     * Falls back to {@link #COPY} if the package file and the repository are
+     * not on the same file system.
+     * </p>
+     */
+    HARDLINK,
+    /**
+     * Create a symbolic link to the absolute path of the package file.
+     * <p>
+     * The repository can then only be used as long as the package files
+     * remain in their location.
+     * </p>
+     */
+    SYMLINK,
+    /**
+     * Copy the package file using {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+     * <p>
+     * This lets the operating system copy the data, without passing it
+     * through the JVM. Depending on the operating system and file system, the
+     * copy may share the data blocks with the original file.
+     * </p>
+     */
+    TRANSFER,
+    /**
+     * Copy the package file, unless the repository already contains a file
+     * with the same content.
+     */
+    COPY_IF_DIFFERENT;
+
+    /**
+     * Place a package file into the repository
+     * <p>
+     * An existing target file will be replaced, unless it already is the
+     * result of placing the package file.
+     * </p>
+     *
+     * @param source
+     *            the package file
+     * @param target
+     *            the location in the repository
+     * @param checksum
+     *            the SHA-256 checksum of the package file, in lower case hex
+     * @return the placement actually used, which may be different from this
+     *         one, if it fell back to a different one
+     * @throws IOException
+     *             if placing the file fails
+     */
+    public PackagePlacement place(final Path source, final Path target, final String checksum) throws IOException {
+        switch (this) {
+            case COPY:
+                YumPackage.copy(source, target);
+                return COPY;
+
+            case HARDLINK:
+                if (Files.exists(target, LinkOption.NOFOLLOW_LINKS) && !Files.isSymbolicLink(target) && Files.isSameFile(source, target)) {
+                    return HARDLINK;
+                }
+                Files.deleteIfExists(target);
+                try {
+                    Files.createLink(target, source);
+                    return HARDLINK;
+                } catch (final UnsupportedOperationException | FileSystemException e) {
+                    YumPackage.copy(source, target);
+                    return COPY;
+                }
+
+            case SYMLINK:
+                final Path link = source.toAbsolutePath();
+                if (Files.isSymbolicLink(target) && Files.readSymbolicLink(target).equals(link)) {
+                    return SYMLINK;
+                }
+                Files.deleteIfExists(target);
+                Files.createSymbolicLink(target, link);
+                return SYMLINK;
+
+            case TRANSFER:
+                transfer(source, target);
+                return TRANSFER;
+
+            case COPY_IF_DIFFERENT:
+                if (hasContent(target, source, checksum)) {
+                    return COPY_IF_DIFFERENT;
+                }
+                YumPackage.copy(source, target);
+                return COPY;
+
+            default:
+                throw new IllegalStateException(String.format("Unknown package placement: %s", this));
+        }
+    }
+
+    private static void transfer(final Path source, final Path target) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+
+        Files.deleteIfExists(target);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+
+        YumPackage.copyAttributes(source, attributes, target);
+    }
+
+    /**
+     * Check if a file is a regular file, other than the source, with the same
+     * size as the source, and the expected checksum
+     */
+    private static boolean hasContent(final Path file, final Path source, final String checksum) throws IOException {
+        if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) || Files.isSameFile(file, source) || Files.size(file) != Files.size(source)) {
+            return false;
+        }
+
+        return YumPackage.checksum(file).equals(checksum);
+    }
+}
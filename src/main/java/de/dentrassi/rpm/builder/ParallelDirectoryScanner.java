@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * Contributors:
+ *     Red Hat Inc - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.rpm.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.codehaus.plexus.util.AbstractScanner;
+import org.codehaus.plexus.util.MatchPatterns;
+
+/**
+ * A directory scanner, scanning sub-directories in parallel.
+ * <p>
+ * The scanner produces the same result as the plexus
+ * {@link org.codehaus.plexus.util.DirectoryScanner}, with following symbolic
+ * links enabled. It uses the same include and exclude patterns, which are
+ * compiled only once. Each directory is listed using
+ * {@link Files#walkFileTree(Path, Set, int, java.nio.file.FileVisitor)}, and
+ * its sub-directories are scanned by tasks of a {@link ForkJoinPool}.
+ * </p>
+ * <p>
+ * In addition to the plexus scanner, sub-directories are not scanned at all
+ * when they are excluded by a pattern ending with {@code /**}, and symbolic
+ * links pointing to one of their parent directories are not followed. The
+ * included files and directories are sorted, so the result does not depend
+ * on the order of scanning.
+ * </p>
+ */
+public class ParallelDirectoryScanner extends AbstractScanner {
+
+    private static final String EXCLUDE_ALL_SUFFIX = File.separator + "**";
+
+    /**
+     * The file keys of a directory and its parents
+     */
+    private static final class Ancestors {
+        private final Object key;
+
+        private final Ancestors parent;
+
+        Ancestors(final Object key, final Ancestors parent) {
+            this.key = key;
+            this.parent = parent;
+        }
+
+        boolean contains(final Object key) {
+            for (Ancestors a = this; a != null; a = a.parent) {
+                if (key.equals(a.key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+
+        private final String prefix;
+
+        private final transient Ancestors ancestors;
+
+        ScanTask(final Path directory, final String prefix, final Ancestors ancestors) {
+            this.directory = directory;
+            this.prefix = prefix;
+            this.ancestors = ancestors;
+        }
+
+        @Override
+        protected void compute() {
+            final List<ScanTask> tasks = new ArrayList<>();
+
+            try {
+                Files.walkFileTree(this.directory, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                        final ScanTask task = visit(file, ScanTask.this.prefix + file.getFileName(), attrs, ScanTask.this.ancestors);
+                        if (task != null) {
+                            tasks.add(task);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+                        // like the plexus scanner, ignore what cannot be read
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (final IOException e) {
+                // the visitor doesn't throw, and failures of the directory are ignored
+            }
+
+            invokeAll(tasks);
+        }
+    }
+
+    private File basedir;
+
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private MatchPatterns excludeAllPatterns;
+
+    private Queue<String> filesIncluded;
+
+    private Queue<String> dirsIncluded;
+
+    private Set<String> symbolicLinks;
+
+    private Queue<String> loops;
+
+    private String[] includedFiles;
+
+    private String[] includedDirectories;
+
+    public void setBasedir(final File basedir) {
+        this.basedir = basedir;
+    }
+
+    @Override
+    public File getBasedir() {
+        return this.basedir;
+    }
+
+    /**
+     * Set the pool to run the scan on
+     *
+     * @param pool
+     *            the pool, defaults to the common pool
+     */
+    public void setPool(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void scan() {
+        if (this.basedir == null) {
+            throw new IllegalStateException("No basedir set");
+        }
+        if (!this.basedir.exists()) {
+            throw new IllegalStateException("basedir " + this.basedir + " does not exist");
+        }
+        if (!this.basedir.isDirectory()) {
+            throw new IllegalStateException("basedir " + this.basedir + " is not a directory");
+        }
+
+        setupDefaultFilters();
+        setupMatchPatterns();
+        this.excludeAllPatterns = makeExcludeAllPatterns(this.excludes);
+
+        this.filesIncluded = new ConcurrentLinkedQueue<>();
+        this.dirsIncluded = new ConcurrentLinkedQueue<>();
+        this.symbolicLinks = Collections.synchronizedSet(new HashSet<>());
+        this.loops = new ConcurrentLinkedQueue<>();
+
+        if (isIncluded("") && !isExcluded("")) {
+            this.dirsIncluded.add("");
+        }
+
+        Path root = this.basedir.toPath();
+        Object key;
+        try {
+            if (Files.isSymbolicLink(root)) {
+                root = root.toRealPath();
+            }
+            key = Files.readAttributes(root, BasicFileAttributes.class).fileKey();
+        } catch (final IOException e) {
+            key = null;
+        }
+
+        this.pool.invoke(new ScanTask(root, "", key != null ? new Ancestors(key, null) : null));
+
+        this.includedFiles = sorted(this.filesIncluded);
+        this.includedDirectories = sorted(this.dirsIncluded);
+    }
+
+    /**
+     * Visit an entry of a directory
+     *
+     * @return the task to scan the entry, or {@code null} if the entry must
+     *         not be scanned
+     */
+    private ScanTask visit(final Path file, final String name, BasicFileAttributes attrs, final Ancestors ancestors) {
+        final boolean symbolicLink = attrs.isSymbolicLink();
+        if (symbolicLink) {
+            try {
+                attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (final IOException e) {
+                // dangling link, ignored by the plexus scanner as well
+                return null;
+            }
+        }
+
+        if (attrs.isRegularFile()) {
+            if (isIncluded(name) && !isExcluded(name)) {
+                this.filesIncluded.add(name);
+                if (symbolicLink) {
+                    this.symbolicLinks.add(name);
+                }
+            }
+            return null;
+        }
+
+        if (!attrs.isDirectory()) {
+            return null;
+        }
+
+        final boolean included = isIncluded(name) && !isExcluded(name);
+        if (included) {
+            this.dirsIncluded.add(name);
+            if (symbolicLink) {
+                this.symbolicLinks.add(name);
+            }
+        } else if (!couldHoldIncluded(name) || isExcludedWithContent(name)) {
+            return null;
+        }
+
+        final Object key = attrs.fileKey();
+        if (key != null && ancestors != null && ancestors.contains(key)) {
+            this.loops.add(name);
+            return null;
+        }
+
+        // the directory is listed without following links, so resolve the link first
+        final Path directory;
+        try {
+            directory = symbolicLink ? file.toRealPath() : file;
+        } catch (final IOException e) {
+            return null;
+        }
+
+        return new ScanTask(directory, name + File.separator, key != null ? new Ancestors(key, ancestors) : ancestors);
+    }
+
+    private boolean isExcludedWithContent(final String name) {
+        return this.excludeAllPatterns != null && this.excludeAllPatterns.matches(name, this.isCaseSensitive);
+    }
+
+    /**
+     * Create the patterns for directories which are excluded including all
+     * their content, from all excludes ending with {@code /**}.
+     */
+    private static MatchPatterns makeExcludeAllPatterns(final String[] excludes) {
+        final List<String> result = new ArrayList<>();
+
+        for (final String exclude : excludes) {
+            if (exclude.startsWith("%")) {
+                // regex or explicit ant patterns, skip
+                continue;
+            }
+            if (exclude.endsWith(EXCLUDE_ALL_SUFFIX)) {
+                final String prefix = exclude.substring(0, exclude.length() - EXCLUDE_ALL_SUFFIX.length());
+                result.add(prefix.isEmpty() ? "**" : prefix);
+            } else if (exclude.equals("**")) {
+                result.add("**");
+            }
+        }
+
+        return result.isEmpty() ? null : MatchPatterns.from(result);
+    }
+
+    private static String[] sorted(final Collection<String> values) {
+        final String[] result = values.toArray(new String[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Get the included files
+     *
+     * @return the sorted names of the included files, relative to the base
+     *         directory
+     */
+    @Override
+    public String[] getIncludedFiles() {
+        return this.includedFiles;
+    }
+
+    /**
+     * Get the included directories
+     *
+     * @return the sorted names of the included directories, relative to the
+     *         base directory, including the empty string for the base
+     *         directory itself
+     */
+    @Override
+    public String[] getIncludedDirectories() {
+        return this.includedDirectories;
+    }
+
+    /**
+     * Check if an included file or directory is a symbolic link
+     *
+     * @param name
+     *            the name, as returned by the scanner
+     * @return {@code true} if the entry is a symbolic link
+     */
+    public boolean isSymbolicLink(final String name) {
+        return this.symbolicLinks.contains(name);
+    }
+
+    /**
+     * Get the directories, which have not been scanned, as they are pointing
+     * to one of their parent directories
+     *
+     * @return the sorted names of the directories
+     */
+    public String[] getLoops() {
+        return sorted(this.loops);
+    }
+}
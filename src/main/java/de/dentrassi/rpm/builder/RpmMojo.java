@@ -8,6 +8,9 @@
  * Contributors:
  *     IBH SYSTEMS GmbH - initial API and implementation
  *     Red Hat Inc - upgrade to package drone 0.14.0, enhance features
+ *     Red Hat Inc - configurable payload coding
+ *     Red Hat Inc - link duplicate files of collectors
+ *     Red Hat Inc - parallel directory scanner
  *     Bernd Warmuth - bugfix target folder creation
  *     Oliver Richter - Made packageName & defaultScriptInterpreter configurable
  *     Lucian Burja - Added setting for creating relocatable RPM packages
@@ -36,12 +39,15 @@ import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -51,6 +57,7 @@ import org.apache.maven.model.License;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -58,7 +65,6 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 import org.bouncycastle.openpgp.PGPPrivateKey;
-import org.codehaus.plexus.util.DirectoryScanner;
 import org.eclipse.packager.rpm.Architecture;
 import org.eclipse.packager.rpm.HashAlgorithm;
 import org.eclipse.packager.rpm.OperatingSystem;
@@ -68,6 +74,7 @@ import org.eclipse.packager.rpm.RpmVersion;
 import org.eclipse.packager.rpm.build.*;
 import org.eclipse.packager.rpm.build.RpmBuilder.PackageInformation;
 import org.eclipse.packager.rpm.build.RpmBuilder.Version;
+import org.eclipse.packager.rpm.coding.PayloadCoding;
 import org.eclipse.packager.rpm.deps.RpmDependencyFlags;
 import org.eclipse.packager.rpm.header.Header;
 import org.eclipse.packager.rpm.info.RpmInformation;
@@ -91,6 +98,9 @@ import de.dentrassi.rpm.builder.signatures.SignatureConfiguration;
 public class RpmMojo extends AbstractMojo {
     private static final String SNAPSHOT_SUFFIX = "-SNAPSHOT";
 
+    // threads scanning the directories of collectors, which is bound by I/O
+    private static final int SCANNER_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
     /**
      * The maven project
      */
@@ -100,6 +110,12 @@ public class RpmMojo extends AbstractMojo {
     @Component
     MavenProjectHelper projectHelper;
 
+    /**
+     * The descriptor of this plugin
+     */
+    @Parameter(defaultValue = "${plugin}", readonly = true, required = true)
+    PluginDescriptor plugin;
+
     /**
      * The version string to be processed in case of a release build
      *
@@ -452,6 +468,11 @@ public class RpmMojo extends AbstractMojo {
 
     private RulesetEvaluator eval;
 
+    private FileInformationCache fileInformationCache;
+
+    // the scanned collectors, shared by the build fingerprint and the payload
+    private Map<Collector, ParallelDirectoryScanner> scanners;
+
     /**
      * A script which is run before the installation takes place
      * <p>
@@ -793,6 +814,105 @@ public class RpmMojo extends AbstractMojo {
     @Parameter(defaultValue = "SHA-256", property = "rpm.fileDigestAlgorithm")
     String fileDigestAlgorithm;
 
+    /**
+     * The compression of the payload.
+     * <p>
+     * One of {@code none}, {@code gzip}, {@code bzip2}, {@code lzma},
+     * {@code xz} or {@code zstd}. If unset, the payload is compressed using
+     * {@code gzip}.
+     * </p>
+     * <p>
+     * A {@code zstd} compressed payload requires RPM 4.14 or later. This is
+     * checked against {@code maximumSupportedRpmVersion} before the package
+     * is built.
+     * </p>
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "rpm.payloadCoding")
+    String payloadCoding;
+
+    public void setPayloadCoding(final String payloadCoding) {
+        this.payloadCoding = payloadCoding;
+    }
+
+    /**
+     * The compression level of the payload.
+     * <p>
+     * A value from {@code 0} to {@code 9}, which is recorded in the
+     * {@code PAYLOADFLAGS} header. Higher values compress better, but take
+     * longer. The default depends on the payload coding, {@code 9} for
+     * {@code gzip} and {@code bzip2}, {@code 6} for {@code xz} and {@code 3}
+     * for {@code zstd}. The {@code none} and {@code lzma} codings ignore the
+     * level.
+     * </p>
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "rpm.payloadCompressionLevel")
+    Integer payloadCompressionLevel;
+
+    public void setPayloadCompressionLevel(final Integer payloadCompressionLevel) {
+        this.payloadCompressionLevel = payloadCompressionLevel;
+    }
+
+    /**
+     * Enable the incremental build cache.
+     * <p>
+     * If enabled, a fingerprint of all inputs of the RPM build is recorded
+     * after a successful build. This includes the configuration of the mojo,
+     * the payload entries with the size and modification timestamp of all
+     * source files, the rulesets, the scripts, the dependencies and the
+     * header information. If the fingerprint of the next build is the same,
+     * and the previously built RPM file was not modified, then the RPM file
+     * will not be built again, but simply attached to the project.
+     * </p>
+     * <p>
+     * Note that when the cache is used, the build time recorded in the RPM
+     * header is the one of the previous build, unless
+     * {@code outputTimestamp} is set anyway.
+     * </p>
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "rpm.buildCache", defaultValue = "false")
+    boolean buildCache = false;
+
+    public void setBuildCache(final boolean buildCache) {
+        this.buildCache = buildCache;
+    }
+
+    /**
+     * The directory to store the state of the build cache in.
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "rpm.buildCacheDirectory", defaultValue = "${project.build.directory}/rpm-build-cache")
+    File buildCacheDirectory;
+
+    public void setBuildCacheDirectory(final File buildCacheDirectory) {
+        this.buildCacheDirectory = buildCacheDirectory;
+    }
+
+    /**
+     * Run the RSA signature processors on background threads.
+     * <p>
+     * If enabled, the header and payload data is handed over to the RSA
+     * signature processors through a bounded buffer, and hashed on a
+     * separate thread for each processor. This way, RSA hashing runs at the
+     * same time as the digests of the signature configuration, instead of
+     * after them. The resulting RPM file is the same.
+     * </p>
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "rpm.backgroundSigning", defaultValue = "false")
+    boolean backgroundSigning = false;
+
+    public void setBackgroundSigning(final boolean backgroundSigning) {
+        this.backgroundSigning = backgroundSigning;
+    }
+
     private Instant outputTimestampInstant;
 
     @Component(role = SignatureConfiguration.class)
@@ -808,6 +928,8 @@ public class RpmMojo extends AbstractMojo {
         }
 
         this.eval = new RulesetEvaluator(this.rulesets);
+        this.fileInformationCache = new FileInformationCache();
+        this.scanners = new IdentityHashMap<>();
 
         final Path targetDir;
 
@@ -851,6 +973,32 @@ public class RpmMojo extends AbstractMojo {
 
         testLeadFlags();
 
+        // check the build cache
+
+        final Path cacheFile;
+        final String fingerprint;
+
+        if (this.buildCache) {
+            try {
+                cacheFile = makeCacheFile(targetDir, outputFileName);
+                fingerprint = makeFingerprint(packageName, version, targetFile);
+                this.logger.debug("Build fingerprint: %s", fingerprint);
+
+                if (isUpToDate(cacheFile, fingerprint, targetFile)) {
+                    this.logger.info("RPM is up to date, skipping build: %s", targetFile);
+                    attach(targetFile);
+                    return;
+                }
+
+                Files.deleteIfExists(cacheFile);
+            } catch (final IOException e) {
+                throw new MojoExecutionException("Failed to evaluate build cache", e);
+            }
+        } else {
+            cacheFile = null;
+            fingerprint = null;
+        }
+
         final BuilderOptions options = new BuilderOptions();
         DigestAlgorithm fileDigestAlgorithm = evalDigestAlgorithm(this.fileDigestAlgorithm);
         this.logger.info("File Digest Algorithm: %s", fileDigestAlgorithm.getAlgorithm());
@@ -870,6 +1018,8 @@ public class RpmMojo extends AbstractMojo {
             provider = null;
         }
 
+        applyPayloadCoding(options);
+
         // start writing the RPM
 
         try (final RpmBuilder builder = new RpmBuilder(packageName, version, this.architecture, targetFile, options)) {
@@ -895,10 +1045,17 @@ public class RpmMojo extends AbstractMojo {
                 provider.applyBuilder(builder);
             }
 
+            final List<BackgroundSignatureProcessor> backgroundSigners = new ArrayList<>();
+
             if (!this.skipSigning && this.signature != null) {
                 final SignatureProcessor[] signers = makeRsaSigners(this.signature);
                 if (signers != null) {
                     for (SignatureProcessor signer : signers) {
+                        if (this.backgroundSigning) {
+                            final BackgroundSignatureProcessor background = new BackgroundSignatureProcessor(signer);
+                            backgroundSigners.add(background);
+                            signer = background;
+                        }
                         builder.addSignatureProcessor(signer);
                     }
                 }
@@ -906,26 +1063,248 @@ public class RpmMojo extends AbstractMojo {
 
             // finally build the file
 
-            builder.build();
+            try {
+                builder.build();
+            } finally {
+                backgroundSigners.forEach(BackgroundSignatureProcessor::close);
+            }
+
+            this.logger.info("File information cache - hits: %s, misses: %s, templates: %s", this.fileInformationCache.getHits(), this.fileInformationCache.getMisses(), this.fileInformationCache.getTemplates());
 
             // version check
 
-            checkVersion(builder);
+            checkVersion(builder, options);
 
             // attach when necessary
 
-            if (this.attach) {
-                this.logger.info("attaching %s", this.classifier);
-                if ("rpm".equals(this.project.getPackaging())) {
-                    this.project.getArtifact().setFile(builder.getTargetFile().toFile());
-                } else {
-                    this.projectHelper.attachArtifact(this.project, "rpm", this.classifier, builder.getTargetFile().toFile());
-                }
-
-            }
+            attach(builder.getTargetFile());
         } catch (final IOException e) {
             throw new MojoExecutionException("Failed to write RPM", e);
         }
+
+        // record the state for the build cache
+
+        if (cacheFile != null) {
+            try {
+                storeCacheState(cacheFile, fingerprint, targetFile);
+            } catch (final IOException e) {
+                throw new MojoExecutionException("Failed to record build cache state", e);
+            }
+        }
+    }
+
+    private void attach(final Path targetFile) {
+        if (this.attach) {
+            this.logger.info("attaching %s", this.classifier);
+            if ("rpm".equals(this.project.getPackaging())) {
+                this.project.getArtifact().setFile(targetFile.toFile());
+            } else {
+                this.projectHelper.attachArtifact(this.project, "rpm", this.classifier, targetFile.toFile());
+            }
+        }
+    }
+
+    private Path makeCacheFile(final Path targetDir, final String outputFileName) {
+        final Path cacheDir;
+        if (this.buildCacheDirectory != null) {
+            cacheDir = this.buildCacheDirectory.toPath();
+        } else {
+            cacheDir = targetDir.resolve("rpm-build-cache");
+        }
+        return cacheDir.resolve(outputFileName + ".state");
+    }
+
+    /**
+     * Create the cache state of a build
+     * <p>
+     * The state consists of the fingerprint of the inputs, and the size and
+     * modification timestamp of the resulting RPM file. So that a modified
+     * or replaced RPM file will be detected as well.
+     * </p>
+     */
+    private static List<String> makeCacheState(final String fingerprint, final Path targetFile) throws IOException {
+        return Arrays.asList(fingerprint, Long.toString(Files.size(targetFile)), Long.toString(Files.getLastModifiedTime(targetFile).toMillis()));
+    }
+
+    private boolean isUpToDate(final Path cacheFile, final String fingerprint, final Path targetFile) throws IOException {
+        if (!Files.isRegularFile(cacheFile) || !Files.isRegularFile(targetFile)) {
+            return false;
+        }
+
+        final List<String> state = readAllLines(cacheFile, US_ASCII);
+        final boolean upToDate = state.equals(makeCacheState(fingerprint, targetFile));
+        this.logger.debug("Build cache state - upToDate: %s, recorded: %s", upToDate, state);
+        return upToDate;
+    }
+
+    private void storeCacheState(final Path cacheFile, final String fingerprint, final Path targetFile) throws IOException {
+        Files.createDirectories(cacheFile.getParent());
+        Files.write(cacheFile, makeCacheState(fingerprint, targetFile), US_ASCII);
+        this.logger.debug("Recorded build cache state: %s", cacheFile);
+    }
+
+    /**
+     * Create a fingerprint of all inputs of the build
+     * <p>
+     * <strong>Note:</strong> All parameters which have an effect on the
+     * resulting RPM file must be added here.
+     * </p>
+     */
+    private String makeFingerprint(final String packageName, final RpmVersion version, final Path targetFile) throws IOException {
+        final BuildFingerprint fp = new BuildFingerprint();
+
+        // effective values
+
+        fp.add("pluginVersion", this.plugin != null ? this.plugin.getVersion() : null);
+        fp.add("targetFile", targetFile.toAbsolutePath());
+        fp.add("packageName", packageName);
+        fp.add("version", version);
+        fp.add("outputTimestamp", this.outputTimestampInstant);
+        fp.add("hostname", this.evalHostname ? makeHostname() : null);
+        fp.add("url", this.project.getUrl());
+        fp.add("projectVendor", makeVendor());
+        fp.add("projectPackager", makePackager());
+        fp.add("projectLicense", makeLicense());
+
+        // parameters
+
+        fp.add("architecture", this.architecture);
+        fp.add("leadOverrideArchitecture", this.leadOverrideArchitecture);
+        fp.add("operatingSystem", this.operatingSystem);
+        fp.add("leadOverrideOperatingSystem", this.leadOverrideOperatingSystem);
+        fp.add("sourcePackage", this.sourcePackage);
+        fp.add("generateDefaultSourcePackage", this.generateDefaultSourcePackage);
+        fp.add("summary", this.summary);
+        fp.add("description", this.description);
+        fp.add("group", this.group);
+        fp.add("distribution", this.distribution);
+        fp.add("license", this.license);
+        fp.add("vendor", this.vendor);
+        fp.add("packager", this.packager);
+        fp.add("prefixes", this.prefixes);
+        fp.add("generateIntermediateDirectories", this.generateIntermediateDirectories);
+        fp.add("entries", this.entries);
+        fp.add("rulesets", this.rulesets);
+        fp.add("defaultRuleset", this.defaultRuleset);
+        fp.add("changelogs", this.changelogs);
+        fp.add("beforeInstallation", this.beforeInstallation);
+        fp.add("afterInstallation", this.afterInstallation);
+        fp.add("beforeRemoval", this.beforeRemoval);
+        fp.add("afterRemoval", this.afterRemoval);
+        fp.add("beforeTransaction", this.beforeTransaction);
+        fp.add("afterTransaction", this.afterTransaction);
+        fp.add("defaultScriptInterpreter", this.defaultScriptInterpreter);
+        fp.add("requires", this.requires);
+        fp.add("provides", this.provides);
+        fp.add("conflicts", this.conflicts);
+        fp.add("obsoletes", this.obsoletes);
+        fp.add("prerequisites", this.prerequisites);
+        fp.add("suggests", this.suggests);
+        fp.add("enhances", this.enhances);
+        fp.add("supplements", this.supplements);
+        fp.add("recommends", this.recommends);
+        fp.add("signature", this.signature);
+        fp.add("skipSigning", this.skipSigning);
+        fp.add("maximumSupportedRpmVersion", this.maximumSupportedRpmVersion);
+        fp.add("signatureConfiguration", this.signatureConfiguration);
+        fp.add("fileDigestAlgorithm", this.fileDigestAlgorithm);
+        fp.add("payloadCoding", this.payloadCoding);
+        fp.add("payloadCompressionLevel", this.payloadCompressionLevel);
+
+        // the content of collected directories
+
+        for (final PackageEntry entry : this.entries) {
+            final Collector collector = entry.getCollect();
+            if (collector == null || collector.getFrom() == null) {
+                continue;
+            }
+
+            final Path from = collector.getFrom().toPath();
+            final ParallelDirectoryScanner scanner = getScanner(collector);
+
+            for (final String directory : scanner.getIncludedDirectories()) {
+                fp.addFile(from.resolve(directory));
+            }
+
+            for (final String file : scanner.getIncludedFiles()) {
+                fp.addFile(from.resolve(file));
+            }
+        }
+
+        return fp.build();
+    }
+
+    /**
+     * Get the scan result of a collector, scanning it only once per build
+     */
+    private ParallelDirectoryScanner getScanner(final Collector collector) {
+        return this.scanners.computeIfAbsent(collector, this::makeScanner);
+    }
+
+    private ParallelDirectoryScanner makeScanner(final Collector collector) {
+        final ParallelDirectoryScanner scanner = new ParallelDirectoryScanner();
+        scanner.setBasedir(collector.getFrom());
+        scanner.setCaseSensitive(true);
+        scanner.setIncludes(collector.getIncludes());
+        scanner.setExcludes(collector.getExcludes());
+
+        // scanning mostly waits for the file system, so don't block the common pool
+        final ForkJoinPool pool = new ForkJoinPool(SCANNER_THREADS);
+        try {
+            scanner.setPool(pool);
+            scanner.scan();
+        } finally {
+            pool.shutdown();
+        }
+
+        for (final String loop : scanner.getLoops()) {
+            this.logger.warn("Not following symbolic link to parent directory: %s", new File(collector.getFrom(), loop));
+        }
+        return scanner;
+    }
+
+    private void applyPayloadCoding(final BuilderOptions options) throws MojoFailureException {
+        if (this.payloadCoding != null && !this.payloadCoding.isEmpty()) {
+            final PayloadCoding coding = evalPayloadCoding(this.payloadCoding);
+            options.setPayloadCoding(coding);
+
+            final Version required = requiredRpmVersion(coding);
+            if (this.maximumSupportedRpmVersion != null && required.compareTo(this.maximumSupportedRpmVersion) > 0) {
+                throw new MojoFailureException(this.payloadCoding, "Payload coding not compatible with version " + this.maximumSupportedRpmVersion, String.format("The payload coding '%1$s' requires at least RPM version %2$s, however the build limits the supported RPM version to %3$s. Either raise the supported RPM version or choose a different payload coding.", coding.getValue(), required, this.maximumSupportedRpmVersion));
+            }
+        }
+
+        if (this.payloadCompressionLevel != null) {
+            if (this.payloadCompressionLevel < 0 || this.payloadCompressionLevel > 9) {
+                throw new MojoFailureException(String.format("Invalid payload compression level: %s, must be between 0 and 9", this.payloadCompressionLevel));
+            }
+            final PayloadCoding coding = options.getPayloadCoding();
+            if (coding == PayloadCoding.NONE || coding == PayloadCoding.LZMA) {
+                this.logger.warn("Payload coding '%s' does not support a compression level, ignoring: %s", coding.getValue(), this.payloadCompressionLevel);
+            }
+            options.setPayloadFlags(Integer.toString(this.payloadCompressionLevel));
+        }
+
+        this.logger.info("Payload coding: %s, flags: %s", options.getPayloadCoding().getValue(), options.getPayloadFlags());
+    }
+
+    static PayloadCoding evalPayloadCoding(final String coding) throws MojoFailureException {
+        for (final PayloadCoding c : PayloadCoding.values()) {
+            if (c.name().equalsIgnoreCase(coding) || c.getValue().equalsIgnoreCase(coding)) {
+                return c;
+            }
+        }
+        throw new MojoFailureException(String.format("Unknown payload coding: %s", coding));
+    }
+
+    /**
+     * Get the minimum version of RPM, which can read a payload coding
+     */
+    static Version requiredRpmVersion(final PayloadCoding coding) {
+        if (coding == PayloadCoding.ZSTD) {
+            return Version.V4_14;
+        }
+        return Version.V4_11;
     }
 
     private DigestAlgorithm evalDigestAlgorithm(String algorithm) throws MojoFailureException {
@@ -966,8 +1345,15 @@ public class RpmMojo extends AbstractMojo {
         return targetFile;
     }
 
-    protected void checkVersion(final RpmBuilder builder) throws MojoFailureException {
-        final Version version = builder.getRequiredRpmVersion();
+    protected void checkVersion(final RpmBuilder builder, final BuilderOptions options) throws MojoFailureException {
+        Version version = builder.getRequiredRpmVersion();
+
+        // the payload coding is not considered by the builder
+        final Version payloadVersion = requiredRpmVersion(options.getPayloadCoding());
+        if (payloadVersion.compareTo(version) > 0) {
+            version = payloadVersion;
+        }
+
         this.logger.info("Required RPM version: %s", version);
 
         if (this.maximumSupportedRpmVersion == null) {
@@ -1226,57 +1612,74 @@ public class RpmMojo extends AbstractMojo {
 
         final MojoFileInformationProvider provider = makeProvider(entry, "            - ");
 
-        final DirectoryScanner scanner = new DirectoryScanner();
-        scanner.setBasedir(from.toFile());
-        scanner.setCaseSensitive(true);
-        scanner.setFollowSymlinks(true);
-        scanner.setIncludes(collector.getIncludes());
-        scanner.setExcludes(collector.getExcludes());
-        scanner.scan();
+        final ParallelDirectoryScanner scanner = getScanner(collector);
 
         if (collector.isDirectories()) {
-            String[] includedDirectories = scanner.getIncludedDirectories();
-            Arrays.sort(includedDirectories);
-            for (final String directory : includedDirectories) {
+            for (final String directory : scanner.getIncludedDirectories()) {
                 final Path dir = from.resolve(directory);
                 if (dir.equals(from)) {
                     continue;
                 }
 
-                RpmMojo.this.logger.debug("%s%s (dir)", padding, dir);
                 final Path relative = from.relativize(dir);
                 final String targetName = makeUnix(targetPrefix + relative);
-                RpmMojo.this.logger.debug("%s  - target: %s", padding, targetName);
+                this.logger.debug(() -> padding + dir + " (dir)");
+                this.logger.debug(() -> padding + "  - target: " + targetName);
                 ctx.addDirectory(targetName, provider);
             }
         }
 
-        String[] includedFiles = scanner.getIncludedFiles();
-        Arrays.sort(includedFiles);
+        final String[] includedFiles = scanner.getIncludedFiles();
+
+        final Map<Path, Path> duplicates = collector.isLinkDuplicates() ? findDuplicates(from, scanner) : Collections.emptyMap();
+
         for (final String relative : includedFiles) {
             final Path file = from.resolve(relative);
             final String targetName = makeUnix(targetPrefix + relative);
 
-            if (java.nio.file.Files.isSymbolicLink(file)) {
-                RpmMojo.this.logger.debug("%s%s (symlink)", padding, file);
+            final Path original = duplicates.get(file);
+            if (original != null) {
+                final String linkTo = makeUnix(file.getParent().relativize(original).toString());
+                this.logger.debug(() -> padding + file + " (duplicate)");
+                this.logger.debug(() -> padding + "  - target: " + targetName);
+                this.logger.debug(() -> padding + "  - linkTo: " + linkTo);
+                ctx.addSymbolicLink(targetName, linkTo, provider);
+            } else if (scanner.isSymbolicLink(relative)) {
                 if (collector.isSymbolicLinks()) {
                     final Path sym = java.nio.file.Files.readSymbolicLink(file);
-                    RpmMojo.this.logger.debug("%s%s (symlink)", padding, file);
-                    RpmMojo.this.logger.debug("%s  - target: %s", padding, targetName);
-                    RpmMojo.this.logger.debug("%s  - linkTo: %s", padding, sym.toString());
+                    this.logger.debug(() -> padding + file + " (symlink)");
+                    this.logger.debug(() -> padding + "  - target: " + targetName);
+                    this.logger.debug(() -> padding + "  - linkTo: " + sym);
                     ctx.addSymbolicLink(targetName, sym.toString(), provider);
                 } else {
-                    RpmMojo.this.logger.debug("%s%s (symlink) - ignoring symbolic links", padding, file);
+                    this.logger.debug(() -> padding + file + " (symlink) - ignoring symbolic links");
                 }
             } else {
-                RpmMojo.this.logger.debug("%s%s (file)", padding, file);
-                RpmMojo.this.logger.debug("%s  - target: %s", padding, targetName);
+                this.logger.debug(() -> padding + file + " (file)");
+                this.logger.debug(() -> padding + "  - target: " + targetName);
 
                 ctx.addFile(targetName, file, provider);
             }
         }
     }
 
+    private Map<Path, Path> findDuplicates(final Path from, final ParallelDirectoryScanner scanner) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        for (final String relative : scanner.getIncludedFiles()) {
+            if (!scanner.isSymbolicLink(relative)) {
+                files.add(from.resolve(relative));
+            }
+        }
+
+        final Map<Path, Path> result;
+        try (FileDigests digests = new FileDigests(DigestAlgorithm.SHA256, Runtime.getRuntime().availableProcessors())) {
+            result = DuplicateFiles.find(files, digests);
+        }
+
+        this.logger.info("Linking %s duplicate files in %s", result.size(), from);
+        return result;
+    }
+
     protected String makeUnix(final String path) {
         return path.replace("\\", "/");
     }
@@ -1289,7 +1692,8 @@ public class RpmMojo extends AbstractMojo {
         } else if (this.defaultRuleset != null && !this.defaultRuleset.isEmpty()) {
             this.logger.debug("Using default ruleset: '%s'", this.defaultRuleset);
         }
-        return new MojoFileInformationProvider(this.eval, ruleset, entry, l -> this.logger.debug("%s%s", padding, l), outputTimestampInstant);
+        final Consumer<String> providerLogger = this.logger.isDebugEnabled() ? l -> this.logger.debug(() -> padding + l) : null;
+        return new MojoFileInformationProvider(this.eval, ruleset, entry, providerLogger, outputTimestampInstant, this.fileInformationCache);
     }
 
     private String makePackageName() {
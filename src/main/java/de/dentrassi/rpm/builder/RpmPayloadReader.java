@@ -0,0 +1,389 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * Contributors:
+ *     Red Hat Inc - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
+import org.eclipse.packager.rpm.FileFlags;
+import org.eclipse.packager.rpm.RpmTag;
+import org.eclipse.packager.rpm.VerifyFlags;
+import org.eclipse.packager.rpm.build.FileInformation;
+import org.eclipse.packager.rpm.build.PayloadEntryType;
+import org.eclipse.packager.rpm.info.RpmInformations;
+import org.eclipse.packager.rpm.parse.InputHeader;
+import org.eclipse.packager.rpm.parse.RpmInputStream;
+
+/**
+ * Read the payload of an RPM file, without writing anything to disk.
+ * <p>
+ * Each entry of the payload is provided together with the information
+ * recorded for it in the header of the package, like user, group, mode, flags
+ * and the target of symbolic links. If the header lacks the file list, the
+ * information is taken from the CPIO entry, as far as possible.
+ * </p>
+ * <p>
+ * The payload can only be read once, entry by entry. The content of an entry
+ * can only be read until the next entry is requested.
+ * </p>
+ */
+public class RpmPayloadReader implements AutoCloseable {
+
+    /**
+     * Receives the entries of the payload
+     */
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(Entry entry) throws IOException;
+    }
+
+    /**
+     * An entry of the payload
+     */
+    public static final class Entry {
+        private final String name;
+
+        private final PayloadEntryType type;
+
+        private final long size;
+
+        private final FileInformation information;
+
+        private final String linkTo;
+
+        private final String digest;
+
+        private final InputStream content;
+
+        private Entry(final String name, final PayloadEntryType type, final long size, final FileInformation information, final String linkTo, final String digest, final InputStream content) {
+            this.name = name;
+            this.type = type;
+            this.size = size;
+            this.information = information;
+            this.linkTo = linkTo;
+            this.digest = digest;
+            this.content = content;
+        }
+
+        /**
+         * Get the normalized name of the entry
+         *
+         * @return the name, starting with a slash
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Get the type of the entry
+         *
+         * @return the type, or {@code null} if the entry is not a regular
+         *         file, a directory, or a symbolic link
+         */
+        public PayloadEntryType getType() {
+            return this.type;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+
+        public FileInformation getInformation() {
+            return this.information;
+        }
+
+        /**
+         * Get the target of a symbolic link
+         *
+         * @return the target, or {@code null} if the entry is not a symbolic
+         *         link
+         */
+        public String getLinkTo() {
+            return this.linkTo;
+        }
+
+        /**
+         * Get the digest of the entry, as recorded in the header
+         *
+         * @return the hex encoded digest, or {@code null} if the header does
+         *         not have one
+         */
+        public String getDigest() {
+            return this.digest;
+        }
+
+        /**
+         * Get the content of the entry
+         * <p>
+         * The stream is only valid until the next entry is requested. It
+         * does not need to be closed.
+         * </p>
+         *
+         * @return the content
+         */
+        public InputStream getContent() {
+            return this.content;
+        }
+
+        /**
+         * Read the complete content of the entry
+         *
+         * @return the content
+         * @throws IOException
+         *             if reading the content fails
+         */
+        public byte[] readContent() throws IOException {
+            return this.content.readAllBytes();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[Entry - name: %s, type: %s, size: %s, information: %s, linkTo: %s]", this.name, this.type, this.size, this.information, this.linkTo);
+        }
+    }
+
+    /**
+     * Shields the payload stream from being closed by consumers
+     */
+    private static final class EntryInputStream extends FilterInputStream {
+        EntryInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private final RpmInputStream in;
+
+    private final InputHeader<RpmTag> header;
+
+    private final HeaderFileList fileList;
+
+    private final String[] users;
+
+    private final String[] groups;
+
+    private final String[] linkTos;
+
+    private final String[] digests;
+
+    private final int[] modes;
+
+    private final int[] flags;
+
+    private final int[] verifyFlags;
+
+    private final int[] mtimes;
+
+    private CpioArchiveInputStream cpio;
+
+    private EntryInputStream content;
+
+    /**
+     * Create a new reader
+     *
+     * @param stream
+     *            the stream of the RPM file, will be closed when the reader is
+     *            closed
+     * @throws IOException
+     *             if reading the headers of the RPM file fails
+     */
+    public RpmPayloadReader(final InputStream stream) throws IOException {
+        this.in = new RpmInputStream(stream);
+        this.header = this.in.getPayloadHeader();
+
+        this.fileList = HeaderFileList.fromHeader(this.header);
+        this.users = HeaderFileList.toStrings(this.header.getTag(RpmTag.FILE_USERNAME));
+        this.groups = HeaderFileList.toStrings(this.header.getTag(RpmTag.FILE_GROUPNAME));
+        this.linkTos = HeaderFileList.toStrings(this.header.getTag(RpmTag.FILE_LINKTO));
+        this.digests = HeaderFileList.toStrings(this.header.getTag(RpmTag.FILE_DIGESTS));
+        this.modes = HeaderFileList.toInts(this.header.getTag(RpmTag.FILE_MODES));
+        this.flags = HeaderFileList.toInts(this.header.getTag(RpmTag.FILE_FLAGS));
+        this.verifyFlags = HeaderFileList.toInts(this.header.getTag(RpmTag.FILE_VERIFYFLAGS));
+        this.mtimes = HeaderFileList.toInts(this.header.getTag(RpmTag.FILE_MTIMES));
+    }
+
+    /**
+     * Open an RPM file
+     *
+     * @param path
+     *            the file to read
+     * @return a new reader, which must be closed
+     * @throws IOException
+     *             if reading the headers of the RPM file fails
+     */
+    public static RpmPayloadReader open(final Path path) throws IOException {
+        final InputStream stream = new BufferedInputStream(Files.newInputStream(path));
+        try {
+            return new RpmPayloadReader(stream);
+        } catch (final IOException | RuntimeException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    public InputHeader<RpmTag> getPayloadHeader() {
+        return this.header;
+    }
+
+    /**
+     * Visit all remaining entries of the payload
+     *
+     * @param visitor
+     *            the visitor to call for each entry
+     * @throws IOException
+     *             if reading the payload fails, or the visitor throws it
+     */
+    public void forEach(final Visitor visitor) throws IOException {
+        Entry entry;
+        while ((entry = next()) != null) {
+            visitor.visit(entry);
+        }
+    }
+
+    /**
+     * Stream all remaining entries of the payload
+     * <p>
+     * The stream is sequential, and reads the payload while it is consumed.
+     * Failures to read the payload are reported as
+     * {@link UncheckedIOException}.
+     * </p>
+     *
+     * @return the stream of entries
+     */
+    public Stream<Entry> stream() {
+        final Iterator<Entry> iterator = new Iterator<Entry>() {
+            private Entry next;
+
+            @Override
+            public boolean hasNext() {
+                if (this.next == null) {
+                    try {
+                        this.next = RpmPayloadReader.this.next();
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return this.next != null;
+            }
+
+            @Override
+            public Entry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Entry result = this.next;
+                this.next = null;
+                return result;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Read the next entry
+     *
+     * @return the next entry, or {@code null} if the end of the payload was
+     *         reached
+     * @throws IOException
+     *             if reading the payload fails
+     */
+    public Entry next() throws IOException {
+        if (this.cpio == null) {
+            this.cpio = this.in.getCpioStream();
+            this.content = new EntryInputStream(this.cpio);
+        }
+
+        final CpioArchiveEntry entry = this.cpio.getNextEntry();
+        if (entry == null) {
+            return null;
+        }
+
+        final String name = RpmInformations.normalize(entry.getName());
+        final int index = this.fileList != null ? this.fileList.getIndex(name) : -1;
+
+        final PayloadEntryType type;
+        if (entry.isRegularFile()) {
+            type = PayloadEntryType.FILE;
+        } else if (entry.isDirectory()) {
+            type = PayloadEntryType.DIRECTORY;
+        } else if (entry.isSymbolicLink()) {
+            type = PayloadEntryType.SYMBOLIC_LINK;
+        } else {
+            type = null;
+        }
+
+        final FileInformation information = new FileInformation();
+        information.setUser(get(this.users, index));
+        information.setGroup(get(this.groups, index));
+        information.setMode((short) (get(this.modes, index, (int) entry.getMode()) & 07777));
+        information.setTimestamp(Instant.ofEpochSecond(get(this.mtimes, index, (int) entry.getTime()) & 0xFFFFFFFFL));
+        information.setFileFlags(FileFlags.decode(get(this.flags, index, 0)));
+        information.setVerifyFlags(decodeVerifyFlags(get(this.verifyFlags, index, -1)));
+
+        String linkTo = null;
+        if (type == PayloadEntryType.SYMBOLIC_LINK) {
+            linkTo = get(this.linkTos, index);
+            if (linkTo == null || linkTo.isEmpty()) {
+                // the content of the entry is the target
+                linkTo = new String(this.content.readAllBytes(), UTF_8);
+            }
+        }
+
+        final String digest = get(this.digests, index);
+
+        return new Entry(name, type, entry.getSize(), information, linkTo, digest != null && !digest.isEmpty() ? digest : null, this.content);
+    }
+
+    private static String get(final String[] values, final int index) {
+        return values != null && index >= 0 && index < values.length ? values[index] : null;
+    }
+
+    private static int get(final int[] values, final int index, final int defaultValue) {
+        return values != null && index >= 0 && index < values.length ? values[index] : defaultValue;
+    }
+
+    private static Set<VerifyFlags> decodeVerifyFlags(final int value) {
+        final Set<VerifyFlags> result = EnumSet.noneOf(VerifyFlags.class);
+        for (final VerifyFlags flag : VerifyFlags.values()) {
+            if ((value & flag.getValue()) != 0) {
+                result.add(flag);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+}
@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * Contributors:
+ *     Red Hat Inc - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.rpm.builder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import org.eclipse.packager.rpm.RpmSignatureTag;
+import org.eclipse.packager.rpm.Rpms;
+import org.eclipse.packager.rpm.header.Header;
+import org.eclipse.packager.rpm.header.HeaderEntry;
+import org.eclipse.packager.rpm.header.Headers;
+import org.eclipse.packager.rpm.header.Type;
+import org.eclipse.packager.rpm.signature.SignatureProcessor;
+
+/**
+ * Replace the signatures of an existing RPM file.
+ * <p>
+ * Only the signature header is created again. The lead, the header and the
+ * payload are copied unchanged, using
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+ * All existing entries of the signature header are kept, except for the
+ * OpenPGP signatures, which are replaced by the result of the signature
+ * processors.
+ * </p>
+ */
+public class RpmResigner {
+
+    private static final int LEAD_SIZE = 96;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Tags of existing signatures, which will be removed
+     */
+    private static final int[] SIGNATURE_TAGS = {
+            RpmSignatureTag.DSAHEADER.getValue(),
+            RpmSignatureTag.RSAHEADER.getValue(),
+            RpmSignatureTag.PGP.getValue(),
+            1005, // GPG
+    };
+
+    /**
+     * A header structure, as found in the file
+     */
+    private static final class RawHeader {
+        private final ByteBuffer index;
+
+        private final ByteBuffer store;
+
+        private final int count;
+
+        private final long length;
+
+        private RawHeader(final ByteBuffer index, final ByteBuffer store, final int count) {
+            this.index = index;
+            this.store = store;
+            this.count = count;
+            this.length = 16L + index.capacity() + store.capacity();
+        }
+
+        static RawHeader read(final FileChannel channel, final long position) throws IOException {
+            final ByteBuffer intro = readFully(channel, position, 16);
+
+            final byte[] magic = new byte[Rpms.HEADER_MAGIC.length];
+            intro.get(magic);
+            if (!Arrays.equals(Rpms.HEADER_MAGIC, magic)) {
+                throw new IOException(String.format("Invalid header magic at position %s", position));
+            }
+
+            intro.position(8);
+            final int count = intro.getInt();
+            final int storeSize = intro.getInt();
+            if (count < 0 || storeSize < 0) {
+                throw new IOException(String.format("Invalid header size at position %s", position));
+            }
+
+            final ByteBuffer index = readFully(channel, position + 16, count * 16);
+            final ByteBuffer store = readFully(channel, position + 16 + count * 16L, storeSize);
+
+            return new RawHeader(index, store, count);
+        }
+
+        /**
+         * Get the entries of the header, with their raw data
+         */
+        Map<Integer, HeaderEntry> getEntries() throws IOException {
+            final Map<Integer, HeaderEntry> result = new TreeMap<>();
+
+            for (int i = 0; i < this.count; i++) {
+                final int tag = this.index.getInt(i * 16);
+                final int type = this.index.getInt(i * 16 + 4);
+                final int offset = this.index.getInt(i * 16 + 8);
+                final int count = this.index.getInt(i * 16 + 12);
+
+                if (tag == Rpms.IMMUTABLE_TAG_SIGNATURE) {
+                    // will be created again when rendering
+                    continue;
+                }
+
+                final Type entryType = Type.fromType(type);
+                final byte[] data = new byte[dataLength(entryType, offset, count)];
+                final ByteBuffer source = this.store.duplicate();
+                source.position(offset);
+                source.get(data);
+                result.put(tag, new HeaderEntry(entryType, tag, count, data, null));
+            }
+
+            return result;
+        }
+
+        private int dataLength(final Type type, final int offset, final int count) throws IOException {
+            switch (type) {
+                case NULL:
+                    return 0;
+                case CHAR:
+                case BYTE:
+                case BLOB:
+                    return count;
+                case SHORT:
+                    return count * 2;
+                case INT:
+                    return count * 4;
+                case LONG:
+                    return count * 8;
+                case STRING:
+                    return stringsLength(offset, 1);
+                case STRING_ARRAY:
+                case I18N_STRING:
+                    return stringsLength(offset, count);
+                default:
+                    throw new IOException(String.format("Unsupported header entry type: %s", type));
+            }
+        }
+
+        /**
+         * Get the length of a number of null terminated strings, including
+         * the terminators
+         */
+        private int stringsLength(final int offset, final int count) throws IOException {
+            int position = offset;
+            for (int i = 0; i < count; i++) {
+                while (true) {
+                    if (position >= this.store.capacity()) {
+                        throw new IOException("Unterminated string in header");
+                    }
+                    if (this.store.get(position++) == 0) {
+                        break;
+                    }
+                }
+            }
+            return position - offset;
+        }
+    }
+
+    private final Supplier<List<SignatureProcessor>> processors;
+
+    /**
+     * Create a new instance
+     *
+     * @param processors
+     *            creates the signature processors for each file, the
+     *            processors must not be re-used
+     */
+    public RpmResigner(final Supplier<List<SignatureProcessor>> processors) {
+        this.processors = processors;
+    }
+
+    /**
+     * Replace the signatures of an RPM file
+     * <p>
+     * The result is written to a temporary file next to the target, which
+     * then replaces the target. The target may be the same as the source.
+     * </p>
+     *
+     * @param source
+     *            the RPM file to sign
+     * @param target
+     *            the signed RPM file
+     * @throws IOException
+     *             if reading or writing fails
+     */
+    public void resign(final Path source, final Path target) throws IOException {
+        final Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            final ByteBuffer lead = readFully(in, 0, LEAD_SIZE);
+            if (!Arrays.equals(Rpms.LEAD_MAGIC, Arrays.copyOf(lead.array(), Rpms.LEAD_MAGIC.length))) {
+                throw new IOException(String.format("File is not an RPM file: %s", source));
+            }
+
+            final RawHeader signature = RawHeader.read(in, LEAD_SIZE);
+            final long headerStart = LEAD_SIZE + signature.length + Rpms.padding((int) signature.length);
+            final RawHeader header = RawHeader.read(in, headerStart);
+
+            final Map<Integer, HeaderEntry> entries = signature.getEntries();
+            for (final int tag : SIGNATURE_TAGS) {
+                entries.remove(tag);
+            }
+
+            for (final HeaderEntry entry : sign(in, headerStart, header.length, entries).makeEntries()) {
+                entries.put(entry.getTag(), entry);
+            }
+
+            final ByteBuffer rendered = Headers.render(entries.values().toArray(new HeaderEntry[0]), true, Rpms.IMMUTABLE_TAG_SIGNATURE);
+            final int padding = Rpms.padding(rendered.remaining());
+
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                lead.rewind();
+                writeFully(out, lead);
+                writeFully(out, rendered);
+                writeFully(out, ByteBuffer.wrap(Rpms.EMPTY_128, 0, padding));
+
+                // header and payload remain unchanged
+                final long size = in.size();
+                long position = headerStart;
+                while (position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+            }
+
+            // keep the mode of the replaced file, or of the source for a new file
+            copyPermissions(Files.exists(target) ? target : source, tmp);
+
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    private static void copyPermissions(final Path from, final Path to) throws IOException {
+        final PosixFileAttributeView view = Files.getFileAttributeView(to, PosixFileAttributeView.class);
+        if (view == null) {
+            // not a POSIX file system
+            return;
+        }
+        view.setPermissions(Files.getPosixFilePermissions(from));
+    }
+
+    private Header<RpmSignatureTag> sign(final FileChannel in, final long headerStart, final long headerLength, final Map<Integer, HeaderEntry> entries) throws IOException {
+        final List<SignatureProcessor> processors = this.processors.get();
+
+        final long archiveSize = archiveSize(entries);
+        for (final SignatureProcessor processor : processors) {
+            processor.init(archiveSize);
+        }
+
+        final ByteBuffer header = readFully(in, headerStart, (int) headerLength);
+        for (final SignatureProcessor processor : processors) {
+            processor.feedHeader(header.slice());
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = headerStart + headerLength;
+        int n;
+        while ((n = in.read(buffer, position)) > 0) {
+            position += n;
+            buffer.flip();
+            for (final SignatureProcessor processor : processors) {
+                processor.feedPayloadData(buffer.slice());
+            }
+            buffer.clear();
+        }
+
+        final Header<RpmSignatureTag> result = new Header<>();
+        for (final SignatureProcessor processor : processors) {
+            processor.finish(result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the uncompressed payload size, as recorded in the signature header
+     */
+    private static long archiveSize(final Map<Integer, HeaderEntry> entries) {
+        final HeaderEntry longSize = entries.get(RpmSignatureTag.LONGARCHIVESIZE.getValue());
+        if (longSize != null && longSize.getType() == Type.LONG) {
+            return ByteBuffer.wrap(longSize.getData()).getLong();
+        }
+        final HeaderEntry size = entries.get(RpmSignatureTag.PAYLOAD_SIZE.getValue());
+        if (size != null && size.getType() == Type.INT) {
+            return Integer.toUnsignedLong(ByteBuffer.wrap(size.getData()).getInt());
+        }
+        return 0;
+    }
+
+    private static ByteBuffer readFully(final FileChannel channel, final long position, final int length) throws IOException {
+        final ByteBuffer result = ByteBuffer.allocate(length);
+        while (result.hasRemaining()) {
+            if (channel.read(result, position + result.position()) < 0) {
+                throw new IOException("Unexpected end of RPM file");
+            }
+        }
+        result.flip();
+        return result;
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * Contributors:
+ *     Red Hat Inc - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.rpm.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.eclipse.packager.rpm.HashAlgorithm;
+import org.eclipse.packager.rpm.signature.RsaHeaderSignatureProcessor;
+import org.eclipse.packager.rpm.signature.RsaSignatureProcessor;
+
+/**
+ * Sign existing RPM files.
+ * <p>
+ * Only the signature header of the RPM files is written again, the header
+ * and the payload are copied unchanged. Existing OpenPGP signatures are
+ * replaced, all other entries of the signature header are kept.
+ * </p>
+ *
+ * @since 1.13.1
+ */
+@Mojo(name = "sign", requiresProject = false, defaultPhase = LifecyclePhase.PACKAGE, threadSafe = false)
+public class RpmSignMojo extends AbstractMojo {
+
+    /**
+     * A list of RPM files to sign.
+     */
+    @Parameter
+    List<File> files;
+
+    /**
+     * A list of directories to scan for RPM files.
+     * <p>
+     * Each directory is scanned using the {@code includes} and
+     * {@code excludes} patterns.
+     * </p>
+     */
+    @Parameter
+    List<File> directories;
+
+    /**
+     * Ant style patterns of files to sign, relative to each of the
+     * {@code directories}.
+     * <p>
+     * Defaults to all files with the extension {@code .rpm}, in any
+     * sub-directory.
+     * </p>
+     */
+    @Parameter(property = "rpm.sign.includes")
+    String[] includes;
+
+    /**
+     * Ant style patterns of files not to sign, relative to each of the
+     * {@code directories}.
+     */
+    @Parameter(property = "rpm.sign.excludes")
+    String[] excludes;
+
+    /**
+     * The directory to write the signed RPM files to.
+     * <p>
+     * If not set, the RPM files will be replaced with the signed files.
+     * </p>
+     */
+    @Parameter(property = "rpm.sign.outputDirectory")
+    File outputDirectory;
+
+    /**
+     * The signature descriptor for GPG signing the RPM files
+     * <p>
+     * Also see <a href="signing.html">signing</a>
+     * </p>
+     */
+    @Parameter(property = "rpm.signature")
+    Signature signature;
+
+    /**
+     * The number of RPM files to sign at the same time.
+     */
+    @Parameter(property = "rpm.sign.threads", defaultValue = "1")
+    int threads = 1;
+
+    /**
+     * Disable the mojo altogether.
+     */
+    @Parameter(property = "rpm.sign.skip", defaultValue = "false")
+    boolean skip;
+
+    private Logger logger;
+
+    public void setFiles(final List<File> files) {
+        this.files = files;
+    }
+
+    public void setDirectories(final List<File> directories) {
+        this.directories = directories;
+    }
+
+    public void setIncludes(final String[] includes) {
+        this.includes = includes;
+    }
+
+    public void setExcludes(final String[] excludes) {
+        this.excludes = excludes;
+    }
+
+    public void setOutputDirectory(final File outputDirectory) {
+        this.outputDirectory = outputDirectory;
+    }
+
+    public void setSignature(final Signature signature) {
+        this.signature = signature;
+    }
+
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
+    public void setSkip(final boolean skip) {
+        this.skip = skip;
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        this.logger = new Logger(getLog());
+
+        if (this.skip) {
+            this.logger.debug("Skipping execution");
+            return;
+        }
+
+        if (this.signature == null) {
+            throw new MojoFailureException("'signature' parameter not set");
+        }
+
+        final PGPPrivateKey privateKey = SigningHelper.loadKey(this.signature, this.logger);
+        if (privateKey == null) {
+            this.logger.info("Signing is skipped");
+            return;
+        }
+
+        final HashAlgorithm hashAlgorithm = HashAlgorithm.from(this.signature.getHashAlgorithm());
+        final RpmResigner resigner = new RpmResigner(() -> Arrays.asList(
+                new RsaHeaderSignatureProcessor(privateKey, hashAlgorithm),
+                new RsaSignatureProcessor(privateKey, hashAlgorithm)));
+
+        final Map<Path, Path> targets = makeTargets(collectFiles());
+
+        try {
+            if (this.outputDirectory != null) {
+                Files.createDirectories(this.outputDirectory.toPath());
+            }
+            sign(resigner, targets);
+        } catch (final IOException e) {
+            throw new MojoExecutionException("Failed to sign RPM files", e);
+        }
+
+        this.logger.info("Signed %s RPM files", targets.size());
+    }
+
+    private Set<Path> collectFiles() {
+        final Set<Path> result = new LinkedHashSet<>();
+
+        if (this.files != null) {
+            for (final File file : this.files) {
+                result.add(file.toPath());
+            }
+        }
+
+        if (this.directories != null) {
+            for (final File directory : this.directories) {
+                final DirectoryScanner scanner = new DirectoryScanner();
+                scanner.setBasedir(directory);
+                scanner.setIncludes(this.includes != null && this.includes.length > 0 ? this.includes : new String[] { "**/*.rpm" });
+                scanner.setExcludes(this.excludes);
+                scanner.setCaseSensitive(true);
+                scanner.scan();
+
+                for (final String name : scanner.getIncludedFiles()) {
+                    result.add(directory.toPath().resolve(name));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private Map<Path, Path> makeTargets(final Set<Path> files) throws MojoFailureException {
+        final Map<Path, Path> result = new HashMap<>();
+        final Map<Path, Path> sources = new HashMap<>();
+
+        for (final Path file : files) {
+            final Path target = this.outputDirectory != null ? this.outputDirectory.toPath().resolve(file.getFileName()) : file;
+            final Path previous = sources.put(target, file);
+            if (previous != null) {
+                throw new MojoFailureException(String.format("RPM files '%s' and '%s' would both be written to '%s'", previous, file, target));
+            }
+            result.put(file, target);
+        }
+
+        return result;
+    }
+
+    private void sign(final RpmResigner resigner, final Map<Path, Path> targets) throws IOException {
+        if (this.threads <= 1) {
+            for (final Map.Entry<Path, Path> entry : targets.entrySet()) {
+                signFile(resigner, entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+
+        this.logger.info("Signing RPM files using %s threads", this.threads);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "rpm-sign-" + this.counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>(targets.size());
+            for (final Map.Entry<Path, Path> entry : targets.entrySet()) {
+                futures.add(executor.submit(() -> {
+                    signFile(resigner, entry.getKey(), entry.getValue());
+                    return null;
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while signing RPM files", e);
+                } catch (final ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException("Failed to sign RPM file", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void signFile(final RpmResigner resigner, final Path source, final Path target) throws IOException {
+        this.logger.debug("Signing %s to %s", source, target);
+        try {
+            resigner.resign(source, target);
+        } catch (final IOException e) {
+            throw new IOException(String.format("Failed to sign RPM file: %s", source), e);
+        }
+    }
+}
@@ -9,28 +9,57 @@
 package de.dentrassi.rpm.builder;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.DosFileAttributeView;
 import java.nio.file.attribute.FileAttributeView;
 import java.nio.file.attribute.FileOwnerAttributeView;
 import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.GroupPrincipal;
 import java.nio.file.attribute.PosixFileAttributeView;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.UserPrincipal;
-import java.nio.file.attribute.UserPrincipalLookupService;
 import java.nio.file.attribute.UserPrincipalNotFoundException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
 import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
 import org.apache.commons.compress.archivers.cpio.CpioConstants;
@@ -40,7 +69,10 @@ import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.SelectorUtils;
 import org.eclipse.packager.rpm.RpmTag;
+import org.eclipse.packager.rpm.build.DigestAlgorithm;
+import org.eclipse.packager.rpm.info.RpmInformations;
 import org.eclipse.packager.rpm.parse.InputHeader;
 import org.eclipse.packager.rpm.parse.RpmInputStream;
 
@@ -49,8 +81,17 @@ import org.eclipse.packager.rpm.parse.RpmInputStream;
  *
  * <p><strong>Limitations / Restrictions</strong></p>
  * <ul>
- *   <li>Symbolic links are not supported, but details about them are written to debug log,</li>
- *   <li>only directories and regular files are supported currently, partially due to Java Nio limitations,</li>
+ *   <li>
+ *     only directories, regular files and symbolic links are supported currently, partially due to Java Nio
+ *     limitations,
+ *   </li>
+ *   <li>
+ *     symbolic links must not point outside of the unpack directory, absolute link targets are converted to relative
+ *     ones, and are only created if supported by the file system,
+ *   </li>
+ *   <li>
+ *     entries sharing the same inode are created as hard links, if supported by the file system,
+ *   </li>
  *   <li>
  *     POSIX file permissions can only be preserved if supported by file system.  Otherwise just read/write will
  *     be set,
@@ -85,6 +126,15 @@ public final class RpmUnpackMojo extends AbstractMojo {
     // buffer size used for reading and writing
     private static final int BUFFER_SIZE = 8192;
 
+    // size of the buffers handed from the reader to the writer threads
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    // number of buffers per writer thread
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    // RPMTAG_LONGFILESIZES, not known to the packager
+    private static final int LONGFILESIZES_TAG = 5008;
+
     /**
      * Maximum acceptable file name length.
      *
@@ -109,6 +159,20 @@ public final class RpmUnpackMojo extends AbstractMojo {
 
     private Logger logger;
 
+    // directories which are known to exist, and to be inside of the unpack directory
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+
+    // the unpack directory, with all symbolic links resolved
+    private Path realTargetDir;
+
+    // directory entries, applied after all entries have been unpacked
+    private final Map<Path, CpioArchiveEntry> directories = new HashMap<>();
+
+    // resolved principals, by index into the name tables
+    private final Map<Long, Optional<UserPrincipal>> users = new ConcurrentHashMap<>();
+
+    private final Map<Long, Optional<GroupPrincipal>> groups = new ConcurrentHashMap<>();
+
     /**
      * RPM file to unpack.
      */
@@ -145,6 +209,70 @@ public final class RpmUnpackMojo extends AbstractMojo {
     @Parameter(property = "rpm.preserveOwner", defaultValue = "false")
     boolean preserveOwner;
 
+    /**
+     * The number of threads used to write the unpacked files.
+     *
+     * <p>If set to a value greater than one, the payload is still read and decompressed by a single thread, but the
+     * content of the files is handed over to a pool of writer threads, which create the files, write their content and
+     * apply their attributes. At most eight buffers of 256 KiB per thread are in use at the same time.</p>
+     *
+     * <p>The default of {@code 1} unpacks all files on a single thread.</p>
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "rpm.unpackThreads", defaultValue = "1")
+    int unpackThreads = 1;
+
+    /**
+     * Entries to unpack.
+     *
+     * <p>A list of Ant style patterns, like {@code etc/app/*.conf}, which are matched against the names of
+     * the payload entries, without a leading slash. If no patterns are given, all entries are unpacked. Parent
+     * directories of unpacked entries are created as required.</p>
+     *
+     * <p>If the header of the RPM file contains a file list, the payload will only be read until all selected
+     * entries have been unpacked.</p>
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "rpm.unpackIncludes")
+    String[] includes;
+
+    /**
+     * Entries not to unpack.
+     *
+     * <p>A list of Ant style patterns, which are matched against the names of the payload entries, without a leading
+     * slash. Entries matching any of those patterns will not be unpacked, even if they match an include pattern.</p>
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "rpm.unpackExcludes")
+    String[] excludes;
+
+    /**
+     * Verify the unpacked files against the file digests of the RPM header.
+     *
+     * <p>If enabled, the size and the digest of each regular file are compared to the {@code FILESIZES} and
+     * {@code FILEDIGESTS} header tags. The digest is computed while the file is written, so the files are not read a
+     * second time. The unpacking fails on the first mismatch, and the mismatching file is deleted.</p>
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "rpm.unpackVerify", defaultValue = "false")
+    boolean verify;
+
+    // verifies unpacked files, if enabled
+    private HeaderDigests digests;
+
+    // normalized names of the selected entries, which are still expected in the payload
+    private Set<String> expected;
+
+    // sets of hard linked entries, by device and inode
+    private final Map<String, HardLinkSet> hardLinks = new HashMap<>();
+
+    // number of hard link sets waiting for their content
+    private int pendingHardLinks;
+
     public RpmUnpackMojo() {
         super();
     }
@@ -155,6 +283,12 @@ public final class RpmUnpackMojo extends AbstractMojo {
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         this.logger = new Logger(getLog());
+        this.createdDirectories.clear();
+        this.directories.clear();
+        this.users.clear();
+        this.groups.clear();
+        this.hardLinks.clear();
+        this.pendingHardLinks = 0;
 
         final Path targetDir = this.unpackDirectory.toPath();
 
@@ -171,13 +305,27 @@ public final class RpmUnpackMojo extends AbstractMojo {
 
         try (final RpmInputStream in =
                      new RpmInputStream(new BufferedInputStream(Files.newInputStream(this.rpmFile.toPath())))) {
+            this.realTargetDir = targetDir.toRealPath();
+
             final InputHeader<RpmTag> header = in.getPayloadHeader();
-            final CpioArchiveInputStream cpio = in.getCpioStream();
-            CpioArchiveEntry entry;
+            this.expected = makeExpected(header);
+            this.digests = this.verify ? HeaderDigests.fromHeader(header) : null;
 
-            while ((entry = cpio.getNextEntry()) != null) {
-                unpackEntry(header, cpio, entry, targetDir);
+            if (this.expected != null && this.expected.isEmpty()) {
+                this.logger.info("No entries selected, skipping payload");
+            } else if (this.unpackThreads > 1) {
+                new ParallelUnpacker(header, targetDir).unpack(in.getCpioStream());
+            } else {
+                final CpioArchiveInputStream cpio = in.getCpioStream();
+                CpioArchiveEntry entry;
+
+                while ((entry = nextEntry(cpio)) != null) {
+                    unpackEntry(header, cpio, entry, targetDir);
+                }
             }
+
+            finishHardLinks(header);
+            applyDirectoryAttributes(header);
         } catch (final IllegalArgumentException | IllegalStateException e) {
             this.logger.warn("Bad or insecure RPM file %s", this.rpmFile);
             throw new MojoFailureException("RPM unpack failed, due to bad or insecure RPM file", e);
@@ -192,47 +340,693 @@ public final class RpmUnpackMojo extends AbstractMojo {
             throws IOException {
         if (entry.isDirectory()) {
             final Path directory = makeTargetFile(targetDir, entry.getName());
-            if (!Files.exists(directory)) {
-                this.logger.debug("Creating directory %s as %s", entry.getName(), directory);
-                Files.createDirectories(directory);
+            if (!this.createdDirectories.contains(directory)) {
+                createParentDirectories(directory);
+                if (!Files.exists(directory)) {
+                    this.logger.debug("Creating directory %s as %s", entry.getName(), directory);
+                    Files.createDirectories(directory);
+                }
+                checkInside(directory);
+                this.createdDirectories.add(directory);
             }
 
-            applyFileAttributes(payloadHeader, directory, entry);
+            // applied after all entries have been unpacked
+            this.directories.put(directory, entry);
         } else if (entry.isRegularFile()) {
-            final Path file = makeTargetFile(targetDir, entry.getName());
-            this.logger.debug("Unpacking file %s to %s", entry.getName(), file);
-            Files.deleteIfExists(file);
-
-            final Path directory = file.getParent();
-            if (directory != null && !Files.exists(directory)) {
-                this.logger.debug("Creating parent directories: %s", directory);
-                Files.createDirectories(directory);
+            if (entry.getNumberOfLinks() > 1) {
+                unpackHardLink(payloadHeader, in, entry, targetDir);
+            } else {
+                writeFile(payloadHeader, in, entry, makeTargetFile(targetDir, entry.getName()));
             }
+        } else if (entry.isSymbolicLink()) {
+            final Path link = makeTargetFile(targetDir, entry.getName());
+            final String target = readLinkTarget(in, entry);
+            createParentDirectories(link);
+            final Path linkTo = makeLinkTarget(link, target);
+            this.logger.debug("Creating symbolic link %s -> %s", link, linkTo);
 
-            // write file content
-            try (OutputStream os =
-                         Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
-                final byte[] buf = new byte[BUFFER_SIZE];
-                long remaining = entry.getSize();
-                int n;
+            Files.deleteIfExists(link);
+            // the link might replace an (empty) directory
+            this.createdDirectories.removeIf(directory -> directory.startsWith(link));
 
-                while (remaining > 0 && (n = in.read(buf, 0, getReadSize(remaining, buf.length))) > 0) {
-                    os.write(buf, 0, n);
-                    remaining -= n;
-                }
+            try {
+                Files.createSymbolicLink(link, linkTo);
+            } catch (final UnsupportedOperationException | FileSystemException e) {
+                this.logger.debug("Could not create symbolic link %s -> %s: %s", link, linkTo, e.getMessage());
             }
-
-            applyFileAttributes(payloadHeader, file, entry);
-        } else if (entry.isSymbolicLink()) {
-            final String linkTo = getLinkTarget(payloadHeader, entry.getInode());
-            // on supported file systems we could use Files.createSymbolicLink
-            this.logger.debug("Ignoring symbolic link %s -> %s", entry.getName(), linkTo);
         } else {
             this.logger.debug("Ignoring entry %s, as it is not a directory, file or symbolic link",
                     entry.getName());
         }
     }
 
+    private void writeFile(final InputHeader<RpmTag> payloadHeader, final InputStream in,
+                           final CpioArchiveEntry entry, final Path file)
+            throws IOException {
+        this.logger.debug("Unpacking file %s to %s", entry.getName(), file);
+        final MessageDigest digest = startDigest(entry);
+
+        Files.deleteIfExists(file);
+
+        createParentDirectories(file);
+
+        // write file content
+        try (OutputStream os =
+                     Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            final byte[] buf = new byte[BUFFER_SIZE];
+            long remaining = entry.getSize();
+            int n;
+
+            while (remaining > 0 && (n = in.read(buf, 0, getReadSize(remaining, buf.length))) > 0) {
+                os.write(buf, 0, n);
+                if (digest != null)
+                    digest.update(buf, 0, n);
+                remaining -= n;
+            }
+        }
+
+        if (digest != null)
+            this.digests.verify(entry, file, digest);
+
+        applyFileAttributes(payloadHeader, file, entry);
+    }
+
+    /**
+     * Start digesting the content of an entry, if verification is enabled.
+     *
+     * @return the digest to update, or {@code null} if the entry does not need to be verified
+     */
+    private MessageDigest startDigest(final CpioArchiveEntry entry) throws IOException {
+        if (this.digests == null)
+            return null;
+
+        // entries of a hard link set without content are verified with the entry carrying it
+        if (entry.getNumberOfLinks() > 1 && entry.getSize() == 0)
+            return null;
+
+        return this.digests.start(entry);
+    }
+
+    /**
+     * The file sizes and digests of the header.
+     */
+    private static final class HeaderDigests {
+        private final HeaderFileList fileList;
+
+        private final DigestAlgorithm algorithm;
+
+        private final String[] digests;
+
+        private final long[] sizes;
+
+        private HeaderDigests(final HeaderFileList fileList, final DigestAlgorithm algorithm, final String[] digests,
+                              final long[] sizes) {
+            this.fileList = fileList;
+            this.algorithm = algorithm;
+            this.digests = digests;
+            this.sizes = sizes;
+        }
+
+        static HeaderDigests fromHeader(final InputHeader<RpmTag> payloadHeader) throws IOException {
+            final HeaderFileList fileList = HeaderFileList.fromHeader(payloadHeader);
+            final String[] digests = HeaderFileList.toStrings(payloadHeader.getTag(RpmTag.FILE_DIGESTS));
+            // packages with files of 4 GiB or more only have the long sizes
+            long[] sizes = HeaderFileList.toLongs(payloadHeader.getTag(RpmTag.FILE_SIZES));
+            if (sizes == null)
+                sizes = HeaderFileList.toLongs(payloadHeader.getTag(LONGFILESIZES_TAG));
+
+            if (fileList == null || digests == null || sizes == null)
+                throw new IllegalStateException("RPM lacks file list, digests or sizes, unable to verify");
+
+            // RPM defaults to MD5, if the algorithm is not specified
+            final int[] algorithm = HeaderFileList.toInts(payloadHeader.getTag(RpmTag.FILE_DIGESTALGO));
+            final DigestAlgorithm digestAlgorithm =
+                    algorithm != null && algorithm.length > 0 ? DigestAlgorithm.fromTag(algorithm[0]) : DigestAlgorithm.MD5;
+
+            return new HeaderDigests(fileList, digestAlgorithm, digests, sizes);
+        }
+
+        MessageDigest start(final CpioArchiveEntry entry) throws IOException {
+            final int index = this.fileList.getIndex(RpmInformations.normalize(entry.getName()));
+            if (index < 0 || index >= this.digests.length || index >= this.sizes.length)
+                throw new IllegalStateException("RPM payload contains file not listed in header: " + entry.getName());
+
+            final long size = this.sizes[index];
+            if (size != entry.getSize())
+                throw new IllegalStateException("Size mismatch of " + entry.getName() + " - header: " + size +
+                        ", payload: " + entry.getSize());
+
+            try {
+                return this.algorithm.createDigest();
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IOException(e);
+            }
+        }
+
+        void verify(final CpioArchiveEntry entry, final Path file, final MessageDigest digest) throws IOException {
+            final String expected = this.digests[this.fileList.getIndex(RpmInformations.normalize(entry.getName()))];
+            final String actual = Hex.encodeHexString(digest.digest());
+
+            if (!actual.equalsIgnoreCase(expected)) {
+                Files.deleteIfExists(file);
+                throw new IllegalStateException("Digest mismatch of " + entry.getName() + " - header: " + expected +
+                        ", payload: " + actual);
+            }
+        }
+    }
+
+    /**
+     * The entries of the payload sharing the same inode.
+     */
+    private static final class HardLinkSet {
+        // selected entries, waiting for the content
+        final List<Path> pending = new ArrayList<>();
+
+        // the first entry with a pending link
+        CpioArchiveEntry entry;
+
+        // the file holding the content, once written
+        Path file;
+    }
+
+    private static String hardLinkKey(final CpioArchiveEntry entry) {
+        return entry.getDeviceMaj() + ":" + entry.getDeviceMin() + ":" + entry.getInode();
+    }
+
+    /**
+     * Unpack an entry sharing its inode with other entries.
+     *
+     * <p>In the "new" CPIO format, only the last entry of a set of hard linked entries carries the content, all
+     * previous entries have a size of zero. The content is written once, all other selected entries of the set are
+     * created as hard links to it.</p>
+     */
+    private void unpackHardLink(final InputHeader<RpmTag> payloadHeader, final InputStream in,
+                                final CpioArchiveEntry entry, final Path targetDir)
+            throws IOException {
+        final HardLinkSet set = this.hardLinks.computeIfAbsent(hardLinkKey(entry), key -> new HardLinkSet());
+        final boolean selected = !hasSelection() || isSelected(RpmInformations.normalize(entry.getName()));
+        final Path file = selected ? makeTargetFile(targetDir, entry.getName()) : null;
+
+        if (set.file != null) {
+            // content was already written
+            if (file != null)
+                createLink(file, set.file);
+            return;
+        }
+
+        if (entry.getSize() == 0) {
+            // content follows with a later entry
+            if (file != null) {
+                if (set.pending.isEmpty()) {
+                    set.entry = entry;
+                    this.pendingHardLinks++;
+                }
+                set.pending.add(file);
+            }
+            return;
+        }
+
+        // not selected entries are only unpacked if other entries of the set are pending
+        final Path content = file != null ? file : set.pending.remove(0);
+        writeFile(payloadHeader, in, entry, content);
+        set.file = content;
+
+        for (final Path link : set.pending) {
+            createLink(link, content);
+        }
+        if (!set.pending.isEmpty() || file == null)
+            this.pendingHardLinks--;
+        set.pending.clear();
+    }
+
+    private boolean isPendingHardLink(final CpioArchiveEntry entry) {
+        if (!entry.isRegularFile() || entry.getNumberOfLinks() <= 1)
+            return false;
+
+        final HardLinkSet set = this.hardLinks.get(hardLinkKey(entry));
+        return set != null && set.file == null && !set.pending.isEmpty();
+    }
+
+    /**
+     * Create all hard link sets which did not have an entry with content.
+     */
+    private void finishHardLinks(final InputHeader<RpmTag> payloadHeader) throws IOException {
+        for (final HardLinkSet set : this.hardLinks.values()) {
+            if (set.file != null || set.pending.isEmpty())
+                continue;
+
+            final Path content = set.pending.remove(0);
+            writeFile(payloadHeader, new ByteArrayInputStream(new byte[0]), set.entry, content);
+            for (final Path link : set.pending) {
+                createLink(link, content);
+            }
+        }
+    }
+
+    private void createLink(final Path link, final Path existing) throws IOException {
+        this.logger.debug("Creating hard link %s -> %s", link, existing);
+
+        Files.deleteIfExists(link);
+        createParentDirectories(link);
+
+        try {
+            Files.createLink(link, existing);
+        } catch (final UnsupportedOperationException | FileSystemException e) {
+            this.logger.debug("Could not create hard link %s, copying instead: %s", link, e.getMessage());
+            Files.copy(existing, link, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    private static String readLinkTarget(final InputStream in, final CpioArchiveEntry entry) throws IOException {
+        if (entry.getSize() <= 0 || entry.getSize() > MAX_FILENAME_LENGTH)
+            throw new IllegalArgumentException("RPM contains symbolic link with invalid target length: " +
+                    entry.getName());
+
+        final byte[] buf = new byte[(int) entry.getSize()];
+        int length = 0;
+        int n;
+        while (length < buf.length && (n = in.read(buf, length, buf.length - length)) > 0) {
+            length += n;
+        }
+        if (length < buf.length)
+            throw new EOFException("Unexpected end of payload in " + entry.getName());
+
+        return new String(buf, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Validate the target of a symbolic link.
+     *
+     * <p>The target must not point outside of the unpack directory. Absolute targets are interpreted relative to the
+     * unpack directory, and are converted into relative targets. The target is resolved element by element, following
+     * the symbolic links which already exist, as a chain of links could point outside of the unpack directory even if
+     * each target looks harmless on its own.</p>
+     *
+     * <p>The parent directory of the link must already exist.</p>
+     *
+     * @return the target to use for the symbolic link
+     */
+    private Path makeLinkTarget(final Path link, final String linkTo) throws IOException {
+        this.logger.debug("Checking link target: %s", linkTo);
+
+        if (!FILENAME_PATTERN.matcher(linkTo).matches())
+            throw new IllegalArgumentException("RPM contains bad characters in link target: " + linkTo);
+
+        final Path parent = link.getParent().toRealPath();
+
+        final Path result;
+        if (linkTo.startsWith("/"))
+            result = parent.relativize(this.realTargetDir.resolve(linkTo.substring(1)).normalize());
+        else
+            result = parent.getFileSystem().getPath(linkTo);
+
+        Path current = parent;
+        for (final Path element : result) {
+            final String name = element.toString();
+            if (name.isEmpty() || name.equals("."))
+                continue;
+
+            current = name.equals("..") ? current.getParent() : current.resolve(name);
+            if (current != null && Files.isSymbolicLink(current)) {
+                try {
+                    current = current.toRealPath();
+                } catch (final NoSuchFileException e) {
+                    // dangling link, checked when it was created
+                }
+            }
+
+            if (current == null || !current.startsWith(this.realTargetDir))
+                throw new IllegalArgumentException("RPM contains symbolic link pointing outside of unpack directory: " +
+                        link + " -> " + linkTo);
+        }
+
+        return result;
+    }
+
+    private boolean hasSelection() {
+        return (this.includes != null && this.includes.length > 0) || (this.excludes != null && this.excludes.length > 0);
+    }
+
+    private boolean isSelected(final String name) {
+        // patterns are relative
+        final String path = name.startsWith("/") ? name.substring(1) : name;
+
+        if (this.includes != null && this.includes.length > 0 && !matchesAny(this.includes, path))
+            return false;
+
+        return this.excludes == null || !matchesAny(this.excludes, path);
+    }
+
+    private static boolean matchesAny(final String[] patterns, final String path) {
+        for (final String pattern : patterns) {
+            if (pattern == null || pattern.isEmpty())
+                continue;
+
+            String normalized = pattern.startsWith("/") ? pattern.substring(1) : pattern;
+            if (normalized.endsWith("/"))
+                normalized += "**";
+
+            if (SelectorUtils.matchPath(normalized, path, "/", true))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Find the selected entries in the file list of the header.
+     *
+     * @return the normalized names of all selected entries, or {@code null} if all entries are selected, or the
+     * header lacks a file list
+     */
+    private Set<String> makeExpected(final InputHeader<RpmTag> payloadHeader) {
+        if (!hasSelection())
+            return null;
+
+        final HeaderFileList fileList = HeaderFileList.fromHeader(payloadHeader);
+        if (fileList == null) {
+            this.logger.debug("RPM lacks a file list in the header, reading complete payload");
+            return null;
+        }
+
+        final Set<String> result = new HashSet<>();
+        for (final String name : fileList.getNames()) {
+            if (isSelected(name))
+                result.add(name);
+        }
+
+        this.logger.debug("Selected %s of %s entries", result.size(), fileList.getNames().size());
+        return result;
+    }
+
+    /**
+     * Get the next selected entry of the payload.
+     *
+     * @return the next entry, or {@code null} if the end of the payload has been reached, or all expected entries
+     * have already been processed
+     */
+    private CpioArchiveEntry nextEntry(final CpioArchiveInputStream cpio) throws IOException {
+        if (!hasSelection())
+            return cpio.getNextEntry();
+
+        while (this.expected == null || !this.expected.isEmpty() || this.pendingHardLinks > 0) {
+            final CpioArchiveEntry entry = cpio.getNextEntry();
+            if (entry == null)
+                return null;
+
+            final String name = RpmInformations.normalize(entry.getName());
+            if (isSelected(name)) {
+                if (this.expected != null)
+                    this.expected.remove(name);
+                return entry;
+            }
+            if (isPendingHardLink(entry))
+                return entry;
+
+            this.logger.debug("Skipping entry %s", entry.getName());
+        }
+
+        this.logger.debug("All selected entries unpacked, skipping remaining payload");
+        return null;
+    }
+
+    /**
+     * Create the parent directories of a file, making sure that the file will be inside of the unpack directory.
+     */
+    private void createParentDirectories(final Path file) throws IOException {
+        final Path directory = file.getParent();
+        if (directory == null || this.createdDirectories.contains(directory))
+            return;
+
+        // check before creating anything, an existing parent might be a link pointing outside
+        checkInside(directory);
+
+        if (!Files.exists(directory)) {
+            this.logger.debug("Creating parent directories: %s", directory);
+            Files.createDirectories(directory);
+            checkInside(directory);
+        }
+        this.createdDirectories.add(directory);
+    }
+
+    /**
+     * Check that a path, with all symbolic links resolved, is inside of the unpack directory.
+     *
+     * <p>The path names of the payload are only checked as text, however symbolic links created by previous entries
+     * could still redirect them. So the nearest existing parent of the path is resolved on disk.</p>
+     */
+    private void checkInside(final Path path) throws IOException {
+        Path existing = path;
+        while (existing != null && !Files.exists(existing, LinkOption.NOFOLLOW_LINKS)) {
+            existing = existing.getParent();
+        }
+        if (existing == null)
+            throw new IllegalArgumentException("RPM contains entry outside of unpack directory: " + path);
+
+        final Path real;
+        try {
+            real = existing.toRealPath();
+        } catch (final NoSuchFileException e) {
+            throw new IllegalArgumentException("RPM contains entry below a dangling symbolic link: " + path, e);
+        }
+
+        if (!real.startsWith(this.realTargetDir))
+            throw new IllegalArgumentException("RPM contains entry outside of unpack directory: " + path);
+    }
+
+    /**
+     * Apply the attributes of all directory entries.
+     *
+     * <p>This is done after all entries have been unpacked, as creating the children of a directory would change its
+     * last-modification time, and restrictive permissions might prevent creating them in the first place. Deeper
+     * directories are processed first, for the same reason.</p>
+     */
+    private void applyDirectoryAttributes(final InputHeader<RpmTag> payloadHeader) {
+        final List<Path> paths = new ArrayList<>(this.directories.keySet());
+        paths.sort(Comparator.comparingInt(Path::getNameCount).reversed());
+
+        for (final Path path : paths) {
+            applyFileAttributes(payloadHeader, path, this.directories.get(path));
+        }
+    }
+
+    /**
+     * A chunk of file content, handed from the reader to a writer thread.
+     */
+    private static final class Chunk {
+        // marks the end of the file content
+        static final Chunk END = new Chunk(null, 0);
+
+        final byte[] data;
+
+        final int length;
+
+        Chunk(final byte[] data, final int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Unpacks the payload using a pool of writer threads.
+     *
+     * <p>The payload is read and decompressed by the calling thread, which also creates directories, as files may
+     * depend on them. The content of each regular file is read into pooled buffers, which are handed over to a writer
+     * task for that file. As the files are read one after the other, all tasks of previous files have their complete
+     * content and can finish, so the reader can always get hold of a buffer eventually.</p>
+     */
+    private final class ParallelUnpacker {
+        private final InputHeader<RpmTag> payloadHeader;
+
+        private final Path targetDir;
+
+        private final Semaphore available = new Semaphore(RpmUnpackMojo.this.unpackThreads * CHUNKS_PER_THREAD);
+
+        private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        private final ExecutorService executor;
+
+        ParallelUnpacker(final InputHeader<RpmTag> payloadHeader, final Path targetDir) {
+            this.payloadHeader = payloadHeader;
+            this.targetDir = targetDir;
+            this.executor = Executors.newFixedThreadPool(RpmUnpackMojo.this.unpackThreads, new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "rpm-unpack-" + this.counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        void unpack(final CpioArchiveInputStream cpio) throws IOException {
+            try {
+                CpioArchiveEntry entry;
+                while ((entry = nextEntry(cpio)) != null) {
+                    checkFailure();
+
+                    if (entry.isRegularFile() && entry.getNumberOfLinks() <= 1) {
+                        unpackFile(cpio, entry);
+                    } else {
+                        unpackEntry(this.payloadHeader, cpio, entry, this.targetDir);
+                    }
+                }
+
+                this.executor.shutdown();
+                if (!this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS))
+                    throw new IOException("Timeout waiting for writer threads");
+
+                checkFailure();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while unpacking");
+            } finally {
+                // on failure, stop the writers, but don't return before they are gone
+                this.executor.shutdownNow();
+                awaitWriters();
+            }
+        }
+
+        private void awaitWriters() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    if (this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS))
+                        break;
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        private void checkFailure() throws IOException {
+            final Exception e = this.failure.get();
+            if (e instanceof RuntimeException)
+                throw (RuntimeException) e;
+            if (e != null)
+                throw new IOException("Failed to write unpacked file", e);
+        }
+
+        private void unpackFile(final InputStream in, final CpioArchiveEntry entry)
+                throws IOException, InterruptedException {
+            final Path file = makeTargetFile(this.targetDir, entry.getName());
+            RpmUnpackMojo.this.logger.debug("Unpacking file %s to %s", entry.getName(), file);
+
+            final MessageDigest digest = startDigest(entry);
+
+            createParentDirectories(file);
+
+            final BlockingQueue<Chunk> chunks = new LinkedBlockingQueue<>();
+            this.executor.execute(() -> write(file, entry, digest, chunks));
+
+            try {
+                long remaining = entry.getSize();
+                while (remaining > 0) {
+                    final byte[] buf = acquire();
+                    int length = 0;
+                    int n;
+                    while (length < buf.length && remaining > 0
+                            && (n = in.read(buf, length, getReadSize(remaining, buf.length - length))) > 0) {
+                        length += n;
+                        remaining -= n;
+                    }
+                    chunks.add(new Chunk(buf, length));
+                    if (length < buf.length && remaining > 0)
+                        throw new EOFException("Unexpected end of payload in " + entry.getName());
+                }
+            } catch (final Exception e) {
+                // let the writer drop the incomplete file
+                this.failure.compareAndSet(null, e);
+                throw e;
+            } finally {
+                chunks.add(Chunk.END);
+            }
+        }
+
+        private void write(final Path file, final CpioArchiveEntry entry, final MessageDigest digest,
+                           final BlockingQueue<Chunk> chunks) {
+            OutputStream os = null;
+            boolean created = false;
+            boolean complete = false;
+            try {
+                Chunk chunk;
+                while ((chunk = chunks.take()) != Chunk.END) {
+                    try {
+                        if (this.failure.get() == null) {
+                            if (os == null) {
+                                Files.deleteIfExists(file);
+                                os = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW,
+                                        StandardOpenOption.WRITE);
+                                created = true;
+                            }
+                            os.write(chunk.data, 0, chunk.length);
+                            if (digest != null)
+                                digest.update(chunk.data, 0, chunk.length);
+                        }
+                    } catch (final IOException e) {
+                        this.failure.compareAndSet(null, e);
+                    } finally {
+                        release(chunk.data);
+                    }
+                }
+
+                if (this.failure.get() != null)
+                    return;
+
+                if (os == null) {
+                    // empty file
+                    Files.deleteIfExists(file);
+                    os = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                    created = true;
+                }
+                os.close();
+                os = null;
+
+                if (digest != null)
+                    RpmUnpackMojo.this.digests.verify(entry, file, digest);
+
+                applyFileAttributes(this.payloadHeader, file, entry);
+                complete = true;
+            } catch (final IOException | RuntimeException e) {
+                this.failure.compareAndSet(null, e);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (os != null) {
+                    try {
+                        os.close();
+                    } catch (final IOException e) {
+                        this.failure.compareAndSet(null, e);
+                    }
+                }
+                if (created && !complete) {
+                    // never leave a truncated file behind
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (final IOException e) {
+                        RpmUnpackMojo.this.logger.debug("Failed to delete incomplete file %s: %s", file, e.getMessage());
+                    }
+                }
+            }
+        }
+
+        private byte[] acquire() throws InterruptedException {
+            this.available.acquire();
+            final byte[] buf = this.buffers.poll();
+            return buf != null ? buf : new byte[CHUNK_SIZE];
+        }
+
+        private void release(final byte[] buf) {
+            this.buffers.add(buf);
+            this.available.release();
+        }
+    }
+
     private static int getReadSize(final long size, final int bufferSize) {
         return size > bufferSize ? bufferSize : (int) size;
     }
@@ -346,40 +1140,78 @@ public final class RpmUnpackMojo extends AbstractMojo {
             return;
         }
 
-        final String userName = getName(payloadHeader, RpmTag.FILE_USERNAME, entry.getUID());
-        final UserPrincipalLookupService service;
-        final UserPrincipal user;
-        try {
-            service = path.getFileSystem().getUserPrincipalLookupService();
-            user = service.lookupPrincipalByName(userName);
-        } catch (final UnsupportedOperationException e) {
-            this.logger.debug("Principal Lookup Service not supported: %s", e.getMessage());
-            return;
-        } catch (final UserPrincipalNotFoundException e) {
-            this.logger.debug("User (%s) do not exist - unable to preserve ownership", userName);
-            return;
-        } catch (final IOException e) {
-            this.logger.debug("Could not lookup user (%s) due to I/O error: %s", userName, e.getMessage());
+        final UserPrincipal user = lookupUser(payloadHeader, path, entry.getUID());
+        if (user == null)
             return;
-        }
 
         if (view instanceof PosixFileAttributeView) {
-            final String groupName = getName(payloadHeader, RpmTag.FILE_GROUPNAME, entry.getGID());
+            final GroupPrincipal group = lookupGroup(payloadHeader, path, entry.getGID());
+            if (group != null) {
+                try {
+                    ((PosixFileAttributeView) view).setGroup(group);
+                } catch (final IOException e) {
+                    this.logger.debug("Could not apply group (%s) due to I/O error: %s", group.getName(), e.getMessage());
+                }
+            }
+        }
 
+        try {
+            view.setOwner(user);
+        } catch (final IOException e) {
+            this.logger.debug("Could not apply user (%s) due to I/O error: %s", user.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Look up a user, only once per user.
+     *
+     * @return the user, or {@code null} if the user cannot be resolved
+     */
+    private UserPrincipal lookupUser(final InputHeader<RpmTag> payloadHeader, final Path path, final long id) {
+        Optional<UserPrincipal> result = this.users.get(id);
+        if (result == null) {
+            final String userName = getName(payloadHeader, RpmTag.FILE_USERNAME, id);
             try {
-                ((PosixFileAttributeView) view).setGroup(service.lookupPrincipalByGroupName(groupName));
+                result = Optional.of(path.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(userName));
+            } catch (final UnsupportedOperationException e) {
+                this.logger.debug("Principal Lookup Service not supported: %s", e.getMessage());
+                result = Optional.empty();
             } catch (final UserPrincipalNotFoundException e) {
-                this.logger.debug("Group (%s) do not exist - unable to preserve group ownership", groupName);
+                this.logger.debug("User (%s) do not exist - unable to preserve ownership", userName);
+                result = Optional.empty();
             } catch (final IOException e) {
-                this.logger.debug("Could not apply group (%s) due to I/O error: %s", groupName, e.getMessage());
+                this.logger.debug("Could not lookup user (%s) due to I/O error: %s", userName, e.getMessage());
+                result = Optional.empty();
             }
+            this.users.put(id, result);
         }
+        return result.orElse(null);
+    }
 
-        try {
-            view.setOwner(user);
-        } catch (final IOException e) {
-            this.logger.debug("Could not apply user (%s) due to I/O error: %s", userName, e.getMessage());
+    /**
+     * Look up a group, only once per group.
+     *
+     * @return the group, or {@code null} if the group cannot be resolved
+     */
+    private GroupPrincipal lookupGroup(final InputHeader<RpmTag> payloadHeader, final Path path, final long id) {
+        Optional<GroupPrincipal> result = this.groups.get(id);
+        if (result == null) {
+            final String groupName = getName(payloadHeader, RpmTag.FILE_GROUPNAME, id);
+            try {
+                result = Optional.of(path.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByGroupName(groupName));
+            } catch (final UnsupportedOperationException e) {
+                this.logger.debug("Principal Lookup Service not supported: %s", e.getMessage());
+                result = Optional.empty();
+            } catch (final UserPrincipalNotFoundException e) {
+                this.logger.debug("Group (%s) do not exist - unable to preserve group ownership", groupName);
+                result = Optional.empty();
+            } catch (final IOException e) {
+                this.logger.debug("Could not lookup group (%s) due to I/O error: %s", groupName, e.getMessage());
+                result = Optional.empty();
+            }
+            this.groups.put(id, result);
         }
+        return result.orElse(null);
     }
 
     private static String getName(final InputHeader<RpmTag> payloadHeader, final RpmTag tag, final long id) {
@@ -401,25 +1233,6 @@ public final class RpmUnpackMojo extends AbstractMojo {
         return names[(int) id];
     }
 
-    private static String getLinkTarget(final InputHeader<RpmTag> payloadHeader, final long inode) {
-        final Object values =
-                payloadHeader.getEntry(RpmTag.FILE_LINKTO)
-                        .orElseThrow(() ->
-                                new IllegalStateException("RPM contains symbolic link, but lacks linkTo header"))
-                        .getValue();
-
-        if (!(values instanceof String[])) {
-            throw new IllegalStateException("RPM linkTo header is not a list of Strings, got " + values.getClass());
-        }
-
-        final String[] linkTo = (String[]) values;
-        if (inode < 0 || linkTo.length <= inode) {
-            throw new IllegalArgumentException("Symbolic link inode out of range [0," + linkTo.length + ']');
-        }
-
-        return linkTo[(int) inode];
-    }
-
     public void setRpmFile(final File rpmFile) {
         this.rpmFile = rpmFile;
     }
@@ -435,4 +1248,20 @@ public final class RpmUnpackMojo extends AbstractMojo {
     public void setPreserveOwner(boolean preserveOwner) {
         this.preserveOwner = preserveOwner;
     }
+
+    public void setIncludes(final String[] includes) {
+        this.includes = includes;
+    }
+
+    public void setExcludes(final String[] excludes) {
+        this.excludes = excludes;
+    }
+
+    public void setVerify(final boolean verify) {
+        this.verify = verify;
+    }
+
+    public void setUnpackThreads(final int unpackThreads) {
+        this.unpackThreads = unpackThreads;
+    }
 }
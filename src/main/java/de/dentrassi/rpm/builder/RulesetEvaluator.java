@@ -7,95 +7,336 @@
  *
  * Contributors:
  *     IBH SYSTEMS GmbH - initial API and implementation
+ *     Red Hat Inc - compile rulesets ahead of time
  *******************************************************************************/
 package de.dentrassi.rpm.builder;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.packager.rpm.build.FileInformation;
 import org.eclipse.packager.rpm.build.PayloadEntryType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Evaluate rulesets against payload entries.
+ * <p>
+ * All rulesets are compiled when the evaluator is created. The parent chain
+ * of each ruleset is flattened into a single list of rules. Prefix and
+ * suffix conditions are stored in tries, so that finding all rules matching
+ * a path only requires a walk along the characters of the path. The
+ * combined effect of a set of matching rules is computed once, and re-used
+ * for all entries matching the same rules.
+ * </p>
+ */
 public class RulesetEvaluator {
     private static final Logger logger = LoggerFactory.getLogger(RulesetEvaluator.class);
 
-    private class RulesetInstance {
+    /**
+     * A trie of string conditions, mapping to rule indexes
+     */
+    private static final class Trie {
+        private final Map<Character, Trie> children = new HashMap<>();
+
+        private final BitSet rules = new BitSet();
+
+        public void put(final String key, final boolean reverse, final int rule) {
+            Trie node = this;
+            final int len = key.length();
+            for (int i = 0; i < len; i++) {
+                final char c = key.charAt(reverse ? len - i - 1 : i);
+                node = node.children.computeIfAbsent(c, x -> new Trie());
+            }
+            node.rules.set(rule);
+        }
+
+        /**
+         * Find all rules which have a condition which is a prefix (or suffix,
+         * when reversed) of the provided value
+         */
+        public BitSet find(final String value, final boolean reverse) {
+            final BitSet result = (BitSet) this.rules.clone();
+
+            Trie node = this;
+            final int len = value.length();
+            for (int i = 0; i < len; i++) {
+                node = node.children.get(value.charAt(reverse ? len - i - 1 : i));
+                if (node == null) {
+                    break;
+                }
+                result.or(node.rules);
+            }
+
+            return result;
+        }
+    }
+
+    private static final class CompiledRuleset {
         private final String id;
 
-        private final List<Rule> rules;
+        private final Rule[] rules;
+
+        private final BitSet last = new BitSet();
+
+        private final BitSet invalidType = new BitSet();
+
+        private final BitSet untyped = new BitSet();
+
+        private final Map<PayloadEntryType, BitSet> types = new EnumMap<>(PayloadEntryType.class);
+
+        private final Trie prefixes = new Trie();
+
+        private final Trie suffixes = new Trie();
+
+        /**
+         * The error to raise when the end of the chain is reached
+         */
+        private final String error;
 
-        private final String parentRuleset;
+        private final Map<BitSet, EntryDetails> effects = new ConcurrentHashMap<>();
 
-        public RulesetInstance(final String id, final List<Rule> rules, final String parentRuleset) {
+        public CompiledRuleset(final String id, final List<Rule> rules, final String error) {
             this.id = id;
-            this.rules = rules;
-            this.parentRuleset = parentRuleset;
+            this.rules = rules.toArray(new Rule[rules.size()]);
+            this.error = error;
+
+            for (final PayloadEntryType type : PayloadEntryType.values()) {
+                this.types.put(type, new BitSet());
+            }
+
+            for (int i = 0; i < this.rules.length; i++) {
+                compile(i, this.rules[i]);
+            }
         }
 
-        private void eval(final Object object, final PayloadEntryType type, final String targetName, final FileInformation info, final Set<String> knownSets) {
-            if (knownSets.contains(this.id)) {
-                throw new IllegalStateException(String.format("Recursive calling of rulesets is not allowed- current: %s, previous: %s", this.id, String.join(", ", knownSets)));
+        private void compile(final int index, final Rule rule) {
+            if (rule.isLast()) {
+                this.last.set(index);
             }
 
-            knownSets.add(this.id);
+            final When when = rule.getWhen();
+            if (when == null) {
+                this.prefixes.put("", false, index);
+                this.suffixes.put("", true, index);
+                this.untyped.set(index);
+                for (final BitSet mask : this.types.values()) {
+                    mask.set(index);
+                }
+                return;
+            }
 
-            for (final Rule rule : this.rules) {
-                logger.debug("Testing rule {}", rule);
+            this.prefixes.put(when.getPrefix() != null ? when.getPrefix() : "", false, index);
+            this.suffixes.put(when.getSuffix() != null ? when.getSuffix() : "", true, index);
 
-                if (rule.matches(object, type, targetName)) {
-                    logger.debug("  Rule matches. Applying information ...");
-                    if (rule.apply(info)) {
-                        logger.debug("    Information: {}", info);
-                    }
-                    if (rule.isLast()) {
-                        logger.debug("  Last rule");
-                        return;
+            try {
+                if (when.matchesType(null)) {
+                    this.untyped.set(index);
+                }
+                for (final Map.Entry<PayloadEntryType, BitSet> entry : this.types.entrySet()) {
+                    if (when.matchesType(entry.getKey())) {
+                        entry.getValue().set(index);
                     }
                 }
+            } catch (final IllegalStateException e) {
+                // report when the rule gets evaluated
+                this.invalidType.set(index);
+            }
+        }
+
+        public Outcome evaluate(final PayloadEntryType type, final String targetName) {
+            final BitSet candidates = this.prefixes.find(targetName, false);
+            candidates.and(this.suffixes.find(targetName, true));
+
+            final BitSet typeMask = type != null ? this.types.get(type) : this.untyped;
+
+            final BitSet matches = new BitSet();
+            boolean lastRule = false;
+
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                if (this.invalidType.get(i)) {
+                    // raises the error
+                    this.rules[i].getWhen().matchesType(type);
+                }
+                if (!typeMask.get(i)) {
+                    continue;
+                }
+
+                matches.set(i);
+
+                if (this.last.get(i)) {
+                    lastRule = true;
+                    break;
+                }
+            }
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("Ruleset '{}' - matching rules for '{}': {} (last: {})", this.id, targetName, matches, lastRule);
             }
 
-            if (this.parentRuleset != null && !this.parentRuleset.isEmpty()) {
-                logger.debug("Running parent ruleset: '{}'", this.parentRuleset);
-                RulesetEvaluator.this.eval(this.parentRuleset, object, type, targetName, info);
+            if (!lastRule && this.error != null) {
+                throw new IllegalStateException(this.error);
             }
+
+            return new Outcome(this, matches);
+        }
+
+        private EntryDetails effect(final BitSet matches) {
+            return this.effects.computeIfAbsent(matches, this::makeEffect);
         }
 
-        public void eval(final Object object, final PayloadEntryType type, final String targetName, final FileInformation info) {
-            eval(object, type, targetName, info, new LinkedHashSet<>());
+        private EntryDetails makeEffect(final BitSet matches) {
+            final EntryDetails result = new EntryDetails();
+            for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                result.overlay(this.rules[i]);
+            }
+            return result;
         }
     }
 
-    private final Map<String, RulesetInstance> rulesets = new LinkedHashMap<>();
+    /**
+     * The outcome of evaluating a ruleset for an entry
+     * <p>
+     * Two outcomes are equal if they are from the same ruleset and the same
+     * rules matched. Applying equal outcomes has the same effect.
+     * </p>
+     */
+    public static final class Outcome {
+        private final CompiledRuleset ruleset;
+
+        private final BitSet matches;
+
+        private Outcome(final CompiledRuleset ruleset, final BitSet matches) {
+            this.ruleset = ruleset;
+            this.matches = matches;
+        }
+
+        /**
+         * Apply the outcome to the file information
+         *
+         * @param info
+         *            the file information to modify
+         * @return {@code true} if any information was applied
+         */
+        public boolean apply(final FileInformation info) {
+            if (this.ruleset.effect(this.matches).apply(info)) {
+                logger.debug("    Information: {}", info);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(this.ruleset) + this.matches.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Outcome)) {
+                return false;
+            }
+            final Outcome other = (Outcome) obj;
+            return this.ruleset == other.ruleset && this.matches.equals(other.matches);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[Outcome - ruleset: %s, rules: %s]", this.ruleset.id, this.matches);
+        }
+    }
+
+    private final Map<String, CompiledRuleset> rulesets = new LinkedHashMap<>();
 
     public RulesetEvaluator(final Collection<Ruleset> rulesets) {
         this(null, rulesets);
     }
 
     public RulesetEvaluator(final RulesetEvaluator parent, final Collection<Ruleset> rulesets) {
+        final Map<String, Ruleset> sets = new LinkedHashMap<>();
         for (final Ruleset set : rulesets) {
-            this.rulesets.put(set.getId(), convert(set));
+            set.validate();
+            sets.put(set.getId(), set);
+        }
+
+        for (final String id : sets.keySet()) {
+            this.rulesets.put(id, compile(id, sets));
         }
     }
 
-    private RulesetInstance convert(final Ruleset set) {
-        set.validate();
+    /**
+     * Compile a ruleset, flattening the chain of parent rulesets
+     * <p>
+     * Errors in the chain, like unknown or recursive parent rulesets, are
+     * only reported when the evaluation actually reaches them.
+     * </p>
+     */
+    private static CompiledRuleset compile(final String id, final Map<String, Ruleset> sets) {
+        final List<Rule> rules = new ArrayList<>();
+        final Set<String> chain = new LinkedHashSet<>();
+
+        String error = null;
+        String current = id;
+
+        while (current != null && !current.isEmpty()) {
+            if (chain.contains(current)) {
+                error = String.format("Recursive calling of rulesets is not allowed- current: %s, previous: %s", current, String.join(", ", chain));
+                logger.warn("Ruleset '{}': {}", id, error);
+                break;
+            }
+
+            final Ruleset set = sets.get(current);
+            if (set == null) {
+                error = String.format("Unknown rule: '%s'", current);
+                break;
+            }
+
+            chain.add(current);
+            rules.addAll(set.getRules());
+            current = set.getDefaultRuleset();
+        }
+
+        logger.debug("Compiled ruleset '{}' - chain: {}, rules: {}", id, chain, rules.size());
 
-        return new RulesetInstance(set.getId(), set.getRules(), set.getDefaultRuleset());
+        return new CompiledRuleset(id, rules, error);
     }
 
-    public void eval(final String ruleId, final Object object, final PayloadEntryType type, final String targetName, final FileInformation info) {
-        final RulesetInstance ruleset = this.rulesets.get(ruleId);
+    /**
+     * Evaluate which rules of a ruleset match an entry
+     *
+     * @param ruleId
+     *            the id of the ruleset
+     * @param type
+     *            the type of the entry
+     * @param targetName
+     *            the target name of the entry
+     * @return the outcome, which can be applied to the file information
+     * @throws IllegalStateException
+     *             if the ruleset is unknown, or evaluating the ruleset failed
+     */
+    public Outcome evaluate(final String ruleId, final PayloadEntryType type, final String targetName) {
+        final CompiledRuleset ruleset = this.rulesets.get(ruleId);
 
         if (ruleset == null) {
             throw new IllegalStateException(String.format("Unknown rule: '%s'", ruleId));
         }
 
-        ruleset.eval(object, type, targetName, info);
+        return ruleset.evaluate(type, targetName);
+    }
+
+    public void eval(final String ruleId, final Object object, final PayloadEntryType type, final String targetName, final FileInformation info) {
+        evaluate(ruleId, type, targetName).apply(info);
     }
 }
@@ -7,13 +7,24 @@
  *
  * Contributors:
  *     IBH SYSTEMS GmbH - initial API and implementation
+ *     Red Hat Inc - cache private keys across executions
  *******************************************************************************/
 package de.dentrassi.rpm.builder;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.bouncycastle.openpgp.PGPException;
@@ -22,10 +33,96 @@ import org.eclipse.packager.security.pgp.PgpHelper;
 
 public final class SigningHelper {
 
+    @FunctionalInterface
+    interface KeyLoader {
+        PGPPrivateKey load(InputStream input, String keyId, String passphrase) throws PGPException, IOException;
+    }
+
+    /**
+     * Identifies a private key, loaded from a keyring file.
+     * <p>
+     * The passphrase is only kept as a digest.
+     * </p>
+     */
+    private static final class KeyCacheKey {
+        private final Path keyringFile;
+
+        private final long lastModified;
+
+        private final long size;
+
+        private final String keyId;
+
+        private final String passphraseDigest;
+
+        KeyCacheKey(final Path keyringFile, final BasicFileAttributes attributes, final String keyId, final String passphrase) throws MojoExecutionException {
+            this.keyringFile = keyringFile;
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.size = attributes.size();
+            this.keyId = keyId;
+
+            try {
+                this.passphraseDigest = Hex.encodeHexString(MessageDigest.getInstance("SHA-256").digest(passphrase.getBytes(UTF_8)));
+            } catch (final NoSuchAlgorithmException e) {
+                throw new MojoExecutionException("Failed to digest passphrase", e);
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.keyringFile, this.lastModified, this.size, this.keyId, this.passphraseDigest);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof KeyCacheKey)) {
+                return false;
+            }
+            final KeyCacheKey other = (KeyCacheKey) obj;
+            return this.lastModified == other.lastModified
+                    && this.size == other.size
+                    && this.keyringFile.equals(other.keyringFile)
+                    && this.keyId.equals(other.keyId)
+                    && this.passphraseDigest.equals(other.passphraseDigest);
+        }
+    }
+
+    /**
+     * Private keys, shared by all executions of the plugin in this JVM
+     */
+    private static final Map<KeyCacheKey, PGPPrivateKey> KEY_CACHE = new ConcurrentHashMap<>();
+
     private SigningHelper() {
     }
 
+    /**
+     * Load the private key for signing
+     * <p>
+     * Loaded keys are cached for the lifetime of the JVM, so that a reactor
+     * build only parses the keyring and decrypts the key once. A cached key
+     * is only used if the keyring file has the same modification timestamp
+     * and size, and the key ID and passphrase are the same.
+     * </p>
+     *
+     * @param signature
+     *            the signature configuration, may be {@code null}
+     * @param logger
+     *            the logger to use
+     * @return the private key, or {@code null} if nothing should be signed
+     * @throws MojoFailureException
+     *             if the configuration is incomplete, or the key cannot be
+     *             found
+     * @throws MojoExecutionException
+     *             if loading the key fails
+     */
     public static PGPPrivateKey loadKey(final Signature signature, final Logger logger) throws MojoFailureException, MojoExecutionException {
+        return loadKey(signature, logger, PgpHelper::loadPrivateKey);
+    }
+
+    static PGPPrivateKey loadKey(final Signature signature, final Logger logger, final KeyLoader loader) throws MojoFailureException, MojoExecutionException {
         if (signature == null) {
             return null;
         }
@@ -46,15 +143,35 @@ public final class SigningHelper {
             throw new MojoFailureException(signature, "'passphrase' parameter not set", "Signing requires the 'passphrase' parameter to be set.");
         }
 
-        try (InputStream input = Files.newInputStream(signature.getKeyringFile().toPath())) {
-            final PGPPrivateKey privateKey = PgpHelper.loadPrivateKey(input, signature.getKeyId(), signature.getPassphrase());
-            if (privateKey == null) {
-                throw new MojoFailureException(String.format("Unable to load GPG key '%s' from '%s'", signature.getKeyId(), signature.getKeyringFile()));
+        final Path keyringFile = signature.getKeyringFile().toPath().toAbsolutePath().normalize();
+
+        try {
+            final KeyCacheKey key = new KeyCacheKey(keyringFile, Files.readAttributes(keyringFile, BasicFileAttributes.class), signature.getKeyId(), signature.getPassphrase());
+
+            PGPPrivateKey privateKey = KEY_CACHE.get(key);
+            if (privateKey != null) {
+                logger.debug("Using cached private key - keyId: %016x", privateKey.getKeyID());
+            } else {
+                try (InputStream input = Files.newInputStream(keyringFile)) {
+                    privateKey = loader.load(input, signature.getKeyId(), signature.getPassphrase());
+                }
+                if (privateKey == null) {
+                    throw new MojoFailureException(String.format("Unable to load GPG key '%s' from '%s'", signature.getKeyId(), signature.getKeyringFile()));
+                }
+                KEY_CACHE.put(key, privateKey);
             }
+
             logger.info("Signing RPM - keyId: %016x", privateKey.getKeyID());
             return privateKey;
         } catch (final PGPException | IOException e) {
             throw new MojoExecutionException("Failed to load private key for signing", e);
         }
     }
+
+    /**
+     * Remove all cached private keys
+     */
+    static void clearCache() {
+        KEY_CACHE.clear();
+    }
 }
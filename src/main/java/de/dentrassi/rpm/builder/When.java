@@ -8,6 +8,7 @@
  * Contributors:
  *     IBH SYSTEMS GmbH - initial API and implementation
  *     Red Hat Inc - add suffix
+ *     Red Hat Inc - split out type condition
  *******************************************************************************/
 package de.dentrassi.rpm.builder;
 
@@ -66,24 +67,8 @@ public class When {
         if (this.type != null && !this.type.isEmpty()) {
             logger.debug("Testing type - expected: {}, actual: {}", this.type, type);
 
-            switch (this.type.toLowerCase()) {
-                case "directory":
-                    if (type != PayloadEntryType.DIRECTORY) {
-                        return false;
-                    }
-                    break;
-                case "file":
-                    if (type != PayloadEntryType.FILE) {
-                        return false;
-                    }
-                    break;
-                case "link":
-                    if (type != PayloadEntryType.SYMBOLIC_LINK) {
-                        return false;
-                    }
-                    break;
-                default:
-                    throw new IllegalStateException(String.format("Unknown match type: '%s'", this.type));
+            if (!matchesType(type)) {
+                return false;
             }
         }
 
@@ -91,4 +76,30 @@ public class When {
 
         return true;
     }
+
+    /**
+     * Test the type condition only
+     *
+     * @param type
+     *            the type of the entry
+     * @return {@code true} if the type condition is not set or matches
+     * @throws IllegalStateException
+     *             if the type condition is invalid
+     */
+    boolean matchesType(final PayloadEntryType type) {
+        if (this.type == null || this.type.isEmpty()) {
+            return true;
+        }
+
+        switch (this.type.toLowerCase()) {
+            case "directory":
+                return type == PayloadEntryType.DIRECTORY;
+            case "file":
+                return type == PayloadEntryType.FILE;
+            case "link":
+                return type == PayloadEntryType.SYMBOLIC_LINK;
+            default:
+                throw new IllegalStateException(String.format("Unknown match type: '%s'", this.type));
+        }
+    }
 }
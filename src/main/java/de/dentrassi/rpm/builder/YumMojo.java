@@ -11,6 +11,11 @@
  *     Bernd Warmuth - introduced skipDependencies property,
  only consider dependencies of type "rpm",
  fixed repodata creation for multiple rpm packages
+ *     Red Hat Inc - read packages in a single pass
+ *     Red Hat Inc - index provided files for pruning requirements
+ *     Red Hat Inc - read packages in parallel
+ *     Red Hat Inc - incremental repository updates
+ *     Red Hat Inc - configurable package placement
  *******************************************************************************/
 package de.dentrassi.rpm.builder;
 
@@ -19,21 +24,30 @@ import static org.eclipse.packager.rpm.HashAlgorithm.SHA256;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
-import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
@@ -50,8 +64,6 @@ import org.bouncycastle.openpgp.PGPPrivateKey;
 import org.eclipse.packager.io.FileSystemSpoolOutTarget;
 import org.eclipse.packager.rpm.HashAlgorithm;
 import org.eclipse.packager.rpm.info.RpmInformation;
-import org.eclipse.packager.rpm.info.RpmInformations;
-import org.eclipse.packager.rpm.parse.RpmInputStream;
 import org.eclipse.packager.rpm.yum.RepositoryCreator;
 import org.eclipse.packager.rpm.yum.RepositoryCreator.Builder;
 import org.eclipse.packager.rpm.yum.RepositoryCreator.Context;
@@ -113,6 +125,8 @@ public class YumMojo extends AbstractMojo {
     @Parameter
     List<File> directories;
 
+    private static final String INDEX_FILE_NAME = ".packages.index";
+
     private File packagesPath;
 
     /**
@@ -148,8 +162,125 @@ public class YumMojo extends AbstractMojo {
         this.skip = skip;
     }
 
+    /**
+     * Take the list of provided files from the package header.
+     * <p>
+     * By default, the payload of each package is decompressed in order to
+     * find all files provided by the package. If enabled, the file list is
+     * instead taken from the {@code BASENAMES}, {@code DIRNAMES} and
+     * {@code DIRINDEXES} tags of the package header, and the payload is not
+     * decompressed at all. Packages which lack those tags are still processed
+     * by reading the payload.
+     * </p>
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "yum.headerFileList", defaultValue = "false")
+    boolean headerFileList = false;
+
+    public void setHeaderFileList(final boolean headerFileList) {
+        this.headerFileList = headerFileList;
+    }
+
+    /**
+     * The number of threads used to read packages.
+     * <p>
+     * If set to a value greater than one, packages are read, checksummed and
+     * copied into the repository on a pool of worker threads. Packages are
+     * still added to the repository metadata one by one, in the same order as
+     * before, so the resulting metadata does not depend on the number of
+     * threads.
+     * </p>
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "yum.threads", defaultValue = "1")
+    int threads = 1;
+
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Update the repository incrementally.
+     * <p>
+     * If enabled, the information read from each package is stored in an
+     * index file in the output directory. Following runs will only read and
+     * copy packages which are new, or changed their size or modification
+     * timestamp. Copies of packages which are no longer part of the
+     * repository will be removed. The repository metadata itself is always
+     * written again.
+     * </p>
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "yum.incremental", defaultValue = "false")
+    boolean incremental = false;
+
+    public void setIncremental(final boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Also compare the checksum of packages in the index.
+     * <p>
+     * If enabled, a package is only taken from the index of an incremental
+     * update, if its SHA-256 checksum did not change either. This detects
+     * packages which have been replaced, keeping their size and modification
+     * timestamp. Every package file is read for this, but unchanged packages
+     * are still neither parsed nor copied again.
+     * </p>
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "yum.incrementalChecksum", defaultValue = "false")
+    boolean incrementalChecksum = false;
+
+    public void setIncrementalChecksum(final boolean incrementalChecksum) {
+        this.incrementalChecksum = incrementalChecksum;
+    }
+
+    /**
+     * The way package files are placed into the {@code packages} directory
+     * of the repository.
+     * <p>
+     * One of:
+     * </p>
+     * <ul>
+     * <li><code>COPY</code> - copy the package file (the default)</li>
+     * <li><code>HARDLINK</code> - create a hard link, falls back to copying if
+     * the package file is on a different file system</li>
+     * <li><code>SYMLINK</code> - create a symbolic link to the absolute path of
+     * the package file</li>
+     * <li><code>TRANSFER</code> - let the operating system copy the file, which
+     * may share the data blocks with the original file</li>
+     * <li><code>COPY_IF_DIFFERENT</code> - copy the package file, unless a file
+     * with the same content already exists</li>
+     * </ul>
+     * <p>
+     * With the exception of {@code COPY}, existing files in the
+     * {@code packages} directory will be replaced.
+     * </p>
+     *
+     * @since 1.13.1
+     */
+    @Parameter(property = "yum.placement", defaultValue = "COPY")
+    PackagePlacement placement = PackagePlacement.COPY;
+
+    public void setPlacement(final PackagePlacement placement) {
+        this.placement = placement;
+    }
+
     private Logger logger;
 
+    private YumPackageIndex previousIndex;
+
+    private YumPackageIndex index;
+
+    private final LongAdder reused = new LongAdder();
+
+    private int removed;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         this.logger = new Logger(getLog());
@@ -207,7 +338,21 @@ public class YumMojo extends AbstractMojo {
                 }
             }
 
+            if (this.incremental) {
+                final Path indexFile = this.outputDirectory.toPath().resolve(INDEX_FILE_NAME);
+                this.previousIndex = YumPackageIndex.load(indexFile, this.headerFileList, this.logger);
+                this.index = new YumPackageIndex(this.headerFileList);
+                this.logger.debug("Loaded package index with %s packages", this.previousIndex.size());
+                removeMetadata();
+            }
+
             addPackageList(creator, paths);
+
+            if (this.incremental) {
+                removeStalePackages();
+                this.index.store(this.outputDirectory.toPath().resolve(INDEX_FILE_NAME));
+                this.logger.info("Package index - reused: %s, read: %s, removed: %s", this.reused.sum(), paths.size() - this.reused.sum(), this.removed);
+            }
         } catch (final IOException e) {
             throw new MojoExecutionException("Failed to write repository", e);
         }
@@ -216,8 +361,12 @@ public class YumMojo extends AbstractMojo {
     private void addPackageList(final RepositoryCreator creator, final Collection<Path> paths) {
         try {
             creator.process(context -> {
-                for (final Path p : paths) {
-                    addSinglePackage(p, context);
+                if (this.threads > 1) {
+                    addPackagesParallel(paths, context);
+                } else {
+                    for (final Path p : paths) {
+                        addSinglePackage(readPackage(p), context);
+                    }
                 }
                 getLog().info(String.format("Added %s packages to the repository", paths.size()));
             });
@@ -226,66 +375,216 @@ public class YumMojo extends AbstractMojo {
         }
     }
 
-    private void addSinglePackage(final Path path, final Context context) throws IOException {
-        final String checksum = makeChecksum(path);
-        final String fileName = path.getFileName().toString();
-        final String location = "packages/" + fileName;
-        final FileInformation fileInformation = new FileInformation(Files.getLastModifiedTime(path).toInstant(), Files.size(path), location);
+    /**
+     * Read packages on a pool of worker threads, but add them to the
+     * repository one by one, in the original order.
+     * <p>
+     * Only a limited number of packages is read ahead of the package which
+     * is added next, so that the memory required for the read packages stays
+     * bounded.
+     * </p>
+     */
+    private void addPackagesParallel(final Collection<Path> paths, final Context context) throws IOException {
+        this.logger.info("Reading packages using %s threads", this.threads);
 
-        final RpmInformation rpmInformation;
-        try (RpmInputStream ris = new RpmInputStream(Files.newInputStream(path))) {
-            rpmInformation = RpmInformations.makeInformation(ris);
-        }
+        final ExecutorService executor = Executors.newFixedThreadPool(this.threads, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
 
-        // Retrieve all the files contained in the rpm (including symlink)
-        List<String> providedFiles = Lists.newArrayList();
-        try (RpmInputStream ris = new RpmInputStream(Files.newInputStream(path))) {
-            ris.getPayloadHeader();
-            ris.getSignatureHeader();
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "yum-package-" + this.counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
 
-            try (CpioArchiveInputStream cpio = ris.getCpioStream()) {
-                CpioArchiveEntry cpioEntry;
-                while ((cpioEntry = cpio.getNextEntry()) != null) {
-                    providedFiles.add(RpmInformations.normalize(cpioEntry.getName()));
+        try {
+            final int window = this.threads * 2;
+            final Iterator<Path> i = paths.iterator();
+            final Deque<Future<YumPackage>> pending = new ArrayDeque<>(window);
+
+            while (i.hasNext() || !pending.isEmpty()) {
+                while (i.hasNext() && pending.size() < window) {
+                    final Path path = i.next();
+                    pending.add(executor.submit(() -> readPackage(path)));
                 }
+                addSinglePackage(await(pending.poll()), context);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static YumPackage await(final Future<YumPackage> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading packages", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
+            throw new IOException("Failed to read package", e.getCause());
         }
+    }
+
+    private YumPackage readPackage(final Path path) throws IOException {
+        final Path copy = this.packagesPath.toPath().resolve(path.getFileName().toString());
 
-        // Remove provided files from the required list
-        List<org.eclipse.packager.rpm.info.RpmInformation.Dependency> requiresToKeep = Lists.newArrayList();
-        for (org.eclipse.packager.rpm.info.RpmInformation.Dependency requiredDep : rpmInformation.getRequires()) {
-            boolean fileProvided = false;
-            
-            for (String providedFile : providedFiles) {
-                if (requiredDep.getName().equals(providedFile)) {
-                   fileProvided = true;
-                    break;
+        if (this.previousIndex != null) {
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            final YumPackage pkg = this.previousIndex.get(path, attributes);
+            if (pkg != null && (!this.incrementalChecksum || pkg.getChecksum().equals(YumPackage.checksum(path)))) {
+                if (!isPlaced(path, copy, attributes)) {
+                    place(pkg, copy);
                 }
+                this.reused.increment();
+                return pkg;
             }
 
-            if (!fileProvided) {
-                for (org.eclipse.packager.rpm.info.RpmInformation.Dependency providedDep : rpmInformation.getProvides()) {
-                    if (requiredDep.getName().equals(providedDep.getName())) {
-                        fileProvided = true;
-                        break;
-                    }
+            if (this.placement == PackagePlacement.COPY) {
+                // replace the copy from a previous run
+                Files.deleteIfExists(copy);
+            }
+        }
+
+        if (this.placement == PackagePlacement.COPY) {
+            // read the package once, copying it into the repository at the same time
+            return YumPackage.read(path, copy, this.headerFileList);
+        }
+
+        final YumPackage pkg = YumPackage.read(path, null, this.headerFileList);
+        place(pkg, copy);
+        return pkg;
+    }
+
+    private void place(final YumPackage pkg, final Path copy) throws IOException {
+        final PackagePlacement result = this.placement.place(pkg.getPath(), copy, pkg.getChecksum());
+        if (result != this.placement) {
+            this.logger.debug("%s - placed using %s instead of %s", pkg.getPath().getFileName(), result, this.placement);
+        }
+    }
+
+    /**
+     * Check if a package file is already placed, using the current placement
+     * <p>
+     * The target is checked without following links, so that links of a
+     * previous run, using a different placement, get replaced.
+     * </p>
+     */
+    private boolean isPlaced(final Path source, final Path target, final BasicFileAttributes attributes) throws IOException {
+        if (this.placement == PackagePlacement.SYMLINK) {
+            return Files.isSymbolicLink(target) && Files.readSymbolicLink(target).equals(source.toAbsolutePath());
+        }
+
+        if (!Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            return false;
+        }
+        final BasicFileAttributes current = Files.readAttributes(target, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (!current.isRegularFile() || current.size() != attributes.size() || current.lastModifiedTime().toMillis() != attributes.lastModifiedTime().toMillis()) {
+            return false;
+        }
+
+        // hard links and copies can only be told apart by the file itself
+        return Files.isSameFile(source, target) == (this.placement == PackagePlacement.HARDLINK);
+    }
+
+    /**
+     * Remove the metadata of a previous run
+     * <p>
+     * The names of the metadata files contain their checksum, so the files of
+     * a previous run would not be replaced, but remain next to the new ones.
+     * </p>
+     */
+    private void removeMetadata() throws IOException {
+        final Path repodata = this.outputDirectory.toPath().resolve("repodata");
+        if (!Files.isDirectory(repodata)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(repodata)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    Files.delete(file);
                 }
             }
-            
-            if (!fileProvided) {
-                requiresToKeep.add(requiredDep);
+        }
+    }
+
+    /**
+     * Remove copies of packages which were indexed by the previous run, but
+     * are no longer part of the repository
+     */
+    private void removeStalePackages() throws IOException {
+        final Set<String> current = new HashSet<>();
+        for (final YumPackage pkg : this.index.getPackages()) {
+            current.add(pkg.getPath().getFileName().toString());
+        }
+
+        for (final YumPackage pkg : this.previousIndex.getPackages()) {
+            final String fileName = pkg.getPath().getFileName().toString();
+            if (current.add(fileName)) {
+                this.logger.debug("Removing stale package: %s", fileName);
+                Files.deleteIfExists(this.packagesPath.toPath().resolve(fileName));
+                this.removed++;
             }
         }
-        rpmInformation.setRequires(requiresToKeep);
+    }
+
+    private void addSinglePackage(final YumPackage pkg, final Context context) throws IOException {
+        final String fileName = pkg.getPath().getFileName().toString();
+        final String location = "packages/" + fileName;
+
+        final String checksum = pkg.getChecksum();
+        final FileInformation fileInformation = new FileInformation(pkg.getLastModified().toInstant(), pkg.getSize(), location);
+        final RpmInformation rpmInformation = pkg.getInformation();
+
+        // Remove provided files and capabilities from the required list
+        final int dropped = pruneRequires(rpmInformation, pkg.getPayloadNames());
+        this.logger.debug("%s - requirements kept: %s, dropped: %s", fileName, rpmInformation.getRequires().size(), dropped);
 
         context.addPackage(fileInformation, rpmInformation, singletonMap(SHA256, checksum), SHA256);
 
-        Files.copy(path, this.packagesPath.toPath().resolve(fileName), StandardCopyOption.COPY_ATTRIBUTES);
+        if (this.index != null) {
+            this.index.put(pkg);
+        }
     }
 
-    private String makeChecksum(final Path path) throws IOException {
-        try (InputStream is = Files.newInputStream(path)) {
-            return DigestUtils.sha256Hex(is).toLowerCase();
+    /**
+     * Remove all requirements which are satisfied by the package itself
+     * <p>
+     * The provided files (including symlinks) and the names of the provided
+     * capabilities are indexed once, so that pruning is linear in the number
+     * of requirements.
+     * </p>
+     *
+     * @param rpmInformation
+     *            the information to modify
+     * @param providedFiles
+     *            the files contained in the package
+     * @return the number of dropped requirements
+     */
+    static int pruneRequires(final RpmInformation rpmInformation, final Collection<String> providedFiles) {
+        final List<RpmInformation.Dependency> requires = rpmInformation.getRequires();
+        if (requires.isEmpty()) {
+            return 0;
         }
+
+        final Set<String> provided = new HashSet<>(providedFiles);
+        if (rpmInformation.getProvides() != null) {
+            for (final RpmInformation.Dependency dep : rpmInformation.getProvides()) {
+                provided.add(dep.getName());
+            }
+        }
+
+        final List<RpmInformation.Dependency> requiresToKeep = new ArrayList<>(requires.size());
+        for (final RpmInformation.Dependency dep : requires) {
+            if (!provided.contains(dep.getName())) {
+                requiresToKeep.add(dep);
+            }
+        }
+        rpmInformation.setRequires(requiresToKeep);
+
+        return requires.size() - requiresToKeep.size();
     }
 }
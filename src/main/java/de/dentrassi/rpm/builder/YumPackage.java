@@ -0,0 +1,390 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * Contributors:
+ *     Red Hat Inc - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.rpm.builder;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveInputStream;
+import org.eclipse.packager.rpm.info.RpmInformation;
+import org.eclipse.packager.rpm.info.RpmInformations;
+import org.eclipse.packager.rpm.parse.RpmInputStream;
+
+/**
+ * An RPM package, read for adding it to a YUM repository.
+ * <p>
+ * The package file is read in a single pass. While the headers and the
+ * payload are parsed, all bytes are fed into the SHA-256 checksum and, if
+ * requested, written to a copy of the file.
+ * </p>
+ * <p>
+ * Optionally, the file list can be taken from the package header. In this
+ * case the payload is still read for the checksum and the copy, but it is not
+ * decompressed.
+ * </p>
+ */
+public class YumPackage {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Passes through all bytes read, to a digest and an optional output
+     * stream.
+     */
+    private static class CopyingInputStream extends FilterInputStream {
+        private final MessageDigest digest;
+
+        private final OutputStream out;
+
+        CopyingInputStream(final InputStream in, final MessageDigest digest, final OutputStream out) {
+            super(in);
+            this.digest = digest;
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                this.digest.update((byte) b);
+                if (this.out != null) {
+                    this.out.write(b);
+                }
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int n = super.read(b, off, len);
+            if (n > 0) {
+                this.digest.update(b, off, n);
+                if (this.out != null) {
+                    this.out.write(b, off, n);
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            // skipped bytes must still be digested and copied
+            final byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+            long remaining = n;
+            while (remaining > 0) {
+                final int r = read(buffer, 0, (int) Math.min(remaining, buffer.length));
+                if (r < 0) {
+                    break;
+                }
+                remaining -= r;
+            }
+            return n - remaining;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        /**
+         * Read all remaining bytes
+         */
+        void drain() throws IOException {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (read(buffer, 0, buffer.length) >= 0) {
+            }
+        }
+    }
+
+    /**
+     * Records the names of all entries of the payload, while the payload is
+     * processed by {@link RpmInformations#makeInformation(RpmInputStream)}.
+     * <p>
+     * If the file list should be taken from the header, and the header has
+     * one, then the payload will not be processed at all.
+     * </p>
+     */
+    private static class RecordingRpmInputStream extends RpmInputStream {
+        private final boolean headerFileList;
+
+        private final List<String> names = new ArrayList<>();
+
+        private HeaderFileList fromHeader;
+
+        RecordingRpmInputStream(final InputStream in, final boolean headerFileList) {
+            super(in);
+            this.headerFileList = headerFileList;
+        }
+
+        @Override
+        public CpioArchiveInputStream getCpioStream() {
+            if (this.headerFileList) {
+                try {
+                    this.fromHeader = HeaderFileList.fromHeader(getPayloadHeader());
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                if (this.fromHeader != null) {
+                    // an empty payload, the payload stream will not be read
+                    return new CpioArchiveInputStream(new ByteArrayInputStream(new byte[0]), "UTF-8") {
+                        @Override
+                        public CpioArchiveEntry getNextEntry() {
+                            return null;
+                        }
+                    };
+                }
+            }
+
+            // read the payload through this stream, and don't close it with the CPIO stream
+            return new CpioArchiveInputStream(this, "UTF-8") {
+                @Override
+                public CpioArchiveEntry getNextEntry() throws IOException {
+                    final CpioArchiveEntry entry = super.getNextEntry();
+                    if (entry != null) {
+                        RecordingRpmInputStream.this.names.add(RpmInformations.normalize(entry.getName()));
+                    }
+                    return entry;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+
+    private final Path path;
+
+    private final FileTime lastModified;
+
+    private final long size;
+
+    private final String checksum;
+
+    private final RpmInformation information;
+
+    private final List<String> payloadNames;
+
+    YumPackage(final Path path, final FileTime lastModified, final long size, final String checksum, final RpmInformation information, final List<String> payloadNames) {
+        this.path = path;
+        this.lastModified = lastModified;
+        this.size = size;
+        this.checksum = checksum;
+        this.information = information;
+        this.payloadNames = Collections.unmodifiableList(payloadNames);
+    }
+
+    /**
+     * Read a package
+     *
+     * @param path
+     *            the package file to read
+     * @param copy
+     *            the location to copy the package file to, while reading it,
+     *            may be {@code null}. The copy will get the modification
+     *            timestamp and, if possible, the permissions of the original
+     *            file. The file must not exist.
+     * @return the package information
+     * @throws IOException
+     *             if reading or copying the file fails
+     */
+    public static YumPackage read(final Path path, final Path copy) throws IOException {
+        return read(path, copy, false);
+    }
+
+    /**
+     * Read a package
+     *
+     * @param path
+     *            the package file to read
+     * @param copy
+     *            the location to copy the package file to, while reading it,
+     *            may be {@code null}. The copy will get the modification
+     *            timestamp and, if possible, the permissions of the original
+     *            file. The file must not exist.
+     * @param headerFileList
+     *            if {@code true}, the file list will be taken from the header
+     *            of the package, and the payload will not be decompressed.
+     *            Packages without a file list in the header will still be
+     *            processed by reading the payload.
+     * @return the package information
+     * @throws IOException
+     *             if reading or copying the file fails
+     */
+    public static YumPackage read(final Path path, final Path copy, final boolean headerFileList) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        final RpmInformation information;
+        final List<String> payloadNames;
+
+        // fails if the copy already exists, in which case we must not delete it
+        final OutputStream copyStream = copy != null ? Files.newOutputStream(copy, StandardOpenOption.CREATE_NEW) : null;
+
+        try (OutputStream out = copyStream;
+                CopyingInputStream in = new CopyingInputStream(Files.newInputStream(path), digest, out);
+                RecordingRpmInputStream ris = new RecordingRpmInputStream(in, headerFileList)) {
+
+            information = RpmInformations.makeInformation(ris);
+
+            if (ris.fromHeader != null) {
+                information.getFiles().addAll(ris.fromHeader.getFiles());
+                information.getDirectories().addAll(ris.fromHeader.getDirectories());
+                payloadNames = ris.fromHeader.getNames();
+            } else {
+                payloadNames = ris.names;
+            }
+
+            // the checksum and the copy must cover the whole file
+            in.drain();
+
+        } catch (final UncheckedIOException e) {
+            if (copy != null) {
+                Files.deleteIfExists(copy);
+            }
+            throw e.getCause();
+        } catch (final IOException | RuntimeException e) {
+            if (copy != null) {
+                Files.deleteIfExists(copy);
+            }
+            throw e;
+        }
+
+        if (copy != null) {
+            copyAttributes(path, attributes, copy);
+        }
+
+        return new YumPackage(path, attributes.lastModifiedTime(), attributes.size(), Hex.encodeHexString(digest.digest()), information, payloadNames);
+    }
+
+    /**
+     * Copy a package file, without reading it
+     * <p>
+     * The copy will get the modification timestamp and, if possible, the
+     * permissions of the original file. An existing file will be replaced.
+     * </p>
+     *
+     * @param path
+     *            the package file to copy
+     * @param copy
+     *            the location to copy the package file to
+     * @throws IOException
+     *             if copying the file fails
+     */
+    public static void copy(final Path path, final Path copy) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        // copying onto a hard link of the file itself does nothing
+        Files.deleteIfExists(copy);
+        Files.copy(path, copy, StandardCopyOption.REPLACE_EXISTING);
+        copyAttributes(path, attributes, copy);
+    }
+
+    /**
+     * Calculate the SHA-256 checksum of a file
+     *
+     * @param file
+     *            the file
+     * @return the checksum, in lower case hex
+     * @throws IOException
+     *             if reading the file fails
+     */
+    static String checksum(final Path file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    static void copyAttributes(final Path source, final BasicFileAttributes attributes, final Path target) throws IOException {
+        final PosixFileAttributeView sourcePosix = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        final PosixFileAttributeView targetPosix = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (sourcePosix != null && targetPosix != null) {
+            targetPosix.setPermissions(sourcePosix.readAttributes().permissions());
+        }
+
+        Files.getFileAttributeView(target, BasicFileAttributeView.class).setTimes(attributes.lastModifiedTime(), attributes.lastAccessTime(), attributes.creationTime());
+    }
+
+    public Path getPath() {
+        return this.path;
+    }
+
+    public FileTime getLastModified() {
+        return this.lastModified;
+    }
+
+    public long getSize() {
+        return this.size;
+    }
+
+    /**
+     * Get the SHA-256 checksum of the package file
+     *
+     * @return the lower case, hex encoded checksum
+     */
+    public String getChecksum() {
+        return this.checksum;
+    }
+
+    public RpmInformation getInformation() {
+        return this.information;
+    }
+
+    /**
+     * Get the names of all entries of the payload
+     * <p>
+     * This includes files, directories and symbolic links.
+     * </p>
+     *
+     * @return the normalized names of all payload entries
+     */
+    public List<String> getPayloadNames() {
+        return this.payloadNames;
+    }
+}
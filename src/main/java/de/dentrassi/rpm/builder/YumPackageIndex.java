@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * Contributors:
+ *     Red Hat Inc - initial API and implementation
+ *******************************************************************************/
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.packager.rpm.info.RpmInformation;
+
+/**
+ * A persistent index of packages which have been added to a YUM repository.
+ * <p>
+ * The index keeps the result of reading each package, keyed by the path of
+ * the package file. An entry is only used again if the size and modification
+ * timestamp of the package file did not change.
+ * </p>
+ * <p>
+ * The index is only a cache. If it cannot be read, for example because it
+ * was written by a different version, it will be discarded and all packages
+ * will be read again.
+ * </p>
+ */
+public class YumPackageIndex {
+
+    private static final int MAGIC = 0x52504D49; // RPMI
+
+    private static final int VERSION = 1;
+
+    private final boolean headerFileList;
+
+    private final Map<Path, YumPackage> packages = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new, empty index
+     *
+     * @param headerFileList
+     *            if the file lists of the indexed packages are taken from the
+     *            package header
+     */
+    public YumPackageIndex(final boolean headerFileList) {
+        this.headerFileList = headerFileList;
+    }
+
+    /**
+     * Get a package from the index
+     *
+     * @param path
+     *            the package file
+     * @param attributes
+     *            the current attributes of the package file
+     * @return the indexed package, or {@code null} if the package is not
+     *         indexed, or the file has changed
+     */
+    public YumPackage get(final Path path, final BasicFileAttributes attributes) {
+        final YumPackage result = this.packages.get(key(path));
+        if (result == null) {
+            return null;
+        }
+        if (result.getSize() != attributes.size() || result.getLastModified().toMillis() != attributes.lastModifiedTime().toMillis()) {
+            return null;
+        }
+        return result;
+    }
+
+    public void put(final YumPackage pkg) {
+        this.packages.put(key(pkg.getPath()), pkg);
+    }
+
+    /**
+     * Get all indexed packages
+     *
+     * @return an unmodifiable view of the indexed packages
+     */
+    public Collection<YumPackage> getPackages() {
+        return Collections.unmodifiableCollection(this.packages.values());
+    }
+
+    public int size() {
+        return this.packages.size();
+    }
+
+    private static Path key(final Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Load an index
+     *
+     * @param file
+     *            the file to load the index from
+     * @param headerFileList
+     *            if the file lists of the indexed packages are taken from the
+     *            package header
+     * @param logger
+     *            the logger to report a damaged index to
+     * @return the index, which is empty if the file does not exist, cannot be
+     *         read, or was written with different settings
+     */
+    public static YumPackageIndex load(final Path file, final boolean headerFileList, final Logger logger) {
+        final YumPackageIndex result = new YumPackageIndex(headerFileList);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readBoolean() != headerFileList) {
+                return result;
+            }
+
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                result.put(readPackage(in));
+            }
+        } catch (final NoSuchFileException e) {
+            // start with an empty index
+        } catch (final IOException e) {
+            // truncated or damaged, e.g. by an interrupted build
+            logger.warn("Failed to read package index %s, discarding it: %s", file, e);
+            return new YumPackageIndex(headerFileList);
+        }
+
+        return result;
+    }
+
+    /**
+     * Store the index
+     * <p>
+     * The index is written to a temporary file first, which then replaces the
+     * target file.
+     * </p>
+     *
+     * @param file
+     *            the file to store the index to
+     * @throws IOException
+     *             if writing the file fails
+     */
+    public void store(final Path file) throws IOException {
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(this.headerFileList);
+
+            final List<YumPackage> packages = new ArrayList<>(this.packages.values());
+            out.writeInt(packages.size());
+            for (final YumPackage pkg : packages) {
+                writePackage(out, pkg);
+            }
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writePackage(final DataOutputStream out, final YumPackage pkg) throws IOException {
+        writeString(out, key(pkg.getPath()).toString());
+        out.writeLong(pkg.getLastModified().toMillis());
+        out.writeLong(pkg.getSize());
+        writeString(out, pkg.getChecksum());
+        writeStrings(out, pkg.getPayloadNames());
+
+        final RpmInformation info = pkg.getInformation();
+
+        writeString(out, info.getName());
+        writeString(out, info.getVersion().getEpoch());
+        writeString(out, info.getVersion().getVersion());
+        writeString(out, info.getVersion().getRelease());
+        writeString(out, info.getArchitecture());
+        writeString(out, info.getSourcePackage());
+        writeString(out, info.getGroup());
+        writeString(out, info.getLicense());
+        writeString(out, info.getSummary());
+        writeString(out, info.getDescription());
+        writeString(out, info.getPackager());
+        writeString(out, info.getUrl());
+        writeString(out, info.getVendor());
+        writeString(out, info.getBuildHost());
+        writeLong(out, info.getInstalledSize());
+        writeLong(out, info.getArchiveSize());
+        writeLong(out, info.getBuildTimestamp());
+        out.writeLong(info.getHeaderStart());
+        out.writeLong(info.getHeaderEnd());
+
+        writeStrings(out, info.getFiles());
+        writeStrings(out, info.getDirectories());
+
+        writeDependencies(out, info.getProvides());
+        writeDependencies(out, info.getRequires());
+        writeDependencies(out, info.getObsoletes());
+        writeDependencies(out, info.getConflicts());
+
+        out.writeInt(info.getChangelog().size());
+        for (final RpmInformation.Changelog log : info.getChangelog()) {
+            out.writeLong(log.getTimestamp());
+            writeString(out, log.getAuthor());
+            writeString(out, log.getText());
+        }
+    }
+
+    private static YumPackage readPackage(final DataInputStream in) throws IOException {
+        final Path path = Path.of(readString(in));
+        final FileTime lastModified = FileTime.fromMillis(in.readLong());
+        final long size = in.readLong();
+        final String checksum = readString(in);
+        final List<String> payloadNames = readStrings(in, new ArrayList<>());
+
+        final RpmInformation info = new RpmInformation();
+
+        info.setName(readString(in));
+        final String epoch = readString(in);
+        final String version = readString(in);
+        final String release = readString(in);
+        info.setVersion(new RpmInformation.Version(version, release, epoch));
+        info.setArchitecture(readString(in));
+        info.setSourcePackage(readString(in));
+        info.setGroup(readString(in));
+        info.setLicense(readString(in));
+        info.setSummary(readString(in));
+        info.setDescription(readString(in));
+        info.setPackager(readString(in));
+        info.setUrl(readString(in));
+        info.setVendor(readString(in));
+        info.setBuildHost(readString(in));
+        info.setInstalledSize(readLong(in));
+        info.setArchiveSize(readLong(in));
+        info.setBuildTimestamp(readLong(in));
+        info.setHeaderStart(in.readLong());
+        info.setHeaderEnd(in.readLong());
+
+        info.setFiles(readStrings(in, new LinkedHashSet<>()));
+        info.setDirectories(readStrings(in, new LinkedHashSet<>()));
+
+        info.setProvides(readDependencies(in));
+        info.setRequires(readDependencies(in));
+        info.setObsoletes(readDependencies(in));
+        info.setConflicts(readDependencies(in));
+
+        final int changes = in.readInt();
+        final List<RpmInformation.Changelog> changelog = new ArrayList<>(changes);
+        for (int i = 0; i < changes; i++) {
+            final long timestamp = in.readLong();
+            final String author = readString(in);
+            final String text = readString(in);
+            changelog.add(new RpmInformation.Changelog(timestamp, author, text));
+        }
+        info.setChangelog(changelog);
+
+        return new YumPackage(path, lastModified, size, checksum, info, payloadNames);
+    }
+
+    private static void writeDependencies(final DataOutputStream out, final List<RpmInformation.Dependency> deps) throws IOException {
+        out.writeInt(deps.size());
+        for (final RpmInformation.Dependency dep : deps) {
+            writeString(out, dep.getName());
+            writeString(out, dep.getVersion());
+            out.writeLong(dep.getFlags());
+        }
+    }
+
+    private static List<RpmInformation.Dependency> readDependencies(final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        final List<RpmInformation.Dependency> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final String name = readString(in);
+            final String version = readString(in);
+            result.add(new RpmInformation.Dependency(name, version, in.readLong()));
+        }
+        return result;
+    }
+
+    private static void writeStrings(final DataOutputStream out, final Collection<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (final String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static <T extends Collection<String>> T readStrings(final DataInputStream in, final T result) throws IOException {
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            result.add(readString(in));
+        }
+        return result;
+    }
+
+    private static void writeLong(final DataOutputStream out, final Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    /**
+     * Write a string of any length, {@link DataOutputStream#writeUTF(String)}
+     * is limited to 64k
+     */
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] data = value.getBytes(UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int len = in.readInt();
+        if (len < 0) {
+            return null;
+        }
+        final byte[] data = new byte[len];
+        in.readFully(data);
+        return new String(data, UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+package de.dentrassi.rpm.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.eclipse.packager.rpm.RpmSignatureTag;
+import org.eclipse.packager.rpm.RpmTagValue;
+import org.eclipse.packager.rpm.header.Header;
+import org.eclipse.packager.rpm.signature.SignatureProcessor;
+import org.eclipse.packager.rpm.signature.SignatureProcessors;
+import org.junit.Test;
+
+public class BackgroundSignatureProcessorTest {
+
+    /**
+     * Feed the processor the same way the RPM writer does, re-using a small
+     * buffer
+     */
+    private static Header<RpmSignatureTag> process(final SignatureProcessor processor, final byte[] header, final byte[] payload) {
+        processor.init(payload.length);
+        processor.feedHeader(ByteBuffer.wrap(header));
+
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (int i = 0; i < payload.length; i += buffer.capacity()) {
+            buffer.clear();
+            buffer.put(payload, i, Math.min(buffer.capacity(), payload.length - i));
+            buffer.flip();
+            processor.feedPayloadData(buffer.slice());
+        }
+
+        final Header<RpmSignatureTag> result = new Header<>();
+        processor.finish(result);
+        return result;
+    }
+
+    @Test
+    public void testSameResult() {
+        final Random random = new Random(42);
+        final byte[] header = new byte[1000];
+        final byte[] payload = new byte[3 * 256 * 1024 + 12345];
+        random.nextBytes(header);
+        random.nextBytes(payload);
+
+        final Header<RpmSignatureTag> expected = process(SignatureProcessors.md5(), header, payload);
+
+        final Header<RpmSignatureTag> actual;
+        try (BackgroundSignatureProcessor processor = new BackgroundSignatureProcessor(SignatureProcessors.md5())) {
+            actual = process(processor, header, payload);
+        }
+
+        assertEquals(expected.size(), actual.size());
+        assertEquals(((RpmTagValue) expected.get(RpmSignatureTag.MD5)).getValue(), ((RpmTagValue) actual.get(RpmSignatureTag.MD5)).getValue());
+    }
+
+    @Test
+    public void testFailure() {
+        final SignatureProcessor failing = new SignatureProcessor() {
+            @Override
+            public void feedHeader(final ByteBuffer header) {
+            }
+
+            @Override
+            public void feedPayloadData(final ByteBuffer data) {
+                throw new IllegalArgumentException("failed");
+            }
+
+            @Override
+            public void finish(final Header<RpmSignatureTag> signature) {
+            }
+        };
+
+        try (BackgroundSignatureProcessor processor = new BackgroundSignatureProcessor(failing)) {
+            final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> process(processor, new byte[10], new byte[1024 * 1024]));
+            assertEquals("failed", e.getMessage());
+        }
+    }
+
+    /**
+     * An error must not leave the caller blocked on a full queue
+     */
+    @Test(timeout = 10_000)
+    public void testError() {
+        final SignatureProcessor failing = new SignatureProcessor() {
+            @Override
+            public void feedHeader(final ByteBuffer header) {
+            }
+
+            @Override
+            public void feedPayloadData(final ByteBuffer data) {
+                throw new AssertionError("failed");
+            }
+
+            @Override
+            public void finish(final Header<RpmSignatureTag> signature) {
+            }
+        };
+
+        try (BackgroundSignatureProcessor processor = new BackgroundSignatureProcessor(failing)) {
+            final AssertionError e = assertThrows(AssertionError.class, () -> process(processor, new byte[10], new byte[64 * 256 * 1024]));
+            assertEquals("failed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCloseWithoutFinish() {
+        try (BackgroundSignatureProcessor processor = new BackgroundSignatureProcessor(SignatureProcessors.md5())) {
+            processor.feedHeader(ByteBuffer.wrap(new byte[10]));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+
+import org.eclipse.packager.rpm.FileFlags;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BuildFingerprintTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static PackageEntry makeEntry(final Path file) {
+        final PackageEntry entry = new PackageEntry();
+        entry.setName("/etc/foo.conf");
+        entry.setFile(file.toFile());
+        entry.setUser("root");
+        entry.setMode("0644");
+        return entry;
+    }
+
+    private static String fingerprint(final Object value) throws IOException {
+        return new BuildFingerprint().add("value", value).build();
+    }
+
+    @Test
+    public void testStable() throws IOException {
+        final Path file = this.folder.newFile("foo.conf").toPath();
+
+        assertEquals(fingerprint(makeEntry(file)), fingerprint(makeEntry(file)));
+    }
+
+    @Test
+    public void testConfigurationChange() throws IOException {
+        final Path file = this.folder.newFile("foo.conf").toPath();
+
+        final PackageEntry entry = makeEntry(file);
+        final String before = fingerprint(entry);
+        entry.setUser("nobody");
+
+        assertNotEquals(before, fingerprint(entry));
+    }
+
+    @Test
+    public void testFileChange() throws IOException {
+        final Path file = this.folder.newFile("foo.conf").toPath();
+        Files.write(file, "foo".getBytes(UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000));
+
+        final String before = fingerprint(makeEntry(file));
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000));
+        assertNotEquals(before, fingerprint(makeEntry(file)));
+    }
+
+    @Test
+    public void testSetOrder() throws IOException {
+        final HashSet<FileFlags> first = new LinkedHashSet<>(Arrays.asList(FileFlags.CONFIGURATION, FileFlags.DOC));
+        final HashSet<FileFlags> second = new LinkedHashSet<>(Arrays.asList(FileFlags.DOC, FileFlags.CONFIGURATION));
+
+        assertEquals(fingerprint(first), fingerprint(second));
+        assertEquals(fingerprint(first), fingerprint(EnumSet.of(FileFlags.DOC, FileFlags.CONFIGURATION)));
+    }
+
+    private Signature makeSignature(final String passphrase) {
+        final Signature signature = new Signature();
+        signature.setKeyId("ABCDEF01");
+        signature.setKeyringFile(this.folder.getRoot().toPath().resolve("secring.gpg").toFile());
+        signature.setPassphrase(passphrase);
+        return signature;
+    }
+
+    @Test
+    public void testSignature() throws IOException {
+        final Signature signature = makeSignature("secret");
+        final String before = fingerprint(signature);
+
+        signature.setKeyId("ABCDEF02");
+        assertNotEquals(before, fingerprint(signature));
+    }
+
+    /**
+     * The fingerprint is stored, so nothing must be derived from the
+     * passphrase
+     */
+    @Test
+    public void testSignaturePassphrase() throws IOException {
+        assertEquals(fingerprint(makeSignature("secret")), fingerprint(makeSignature("other")));
+        assertEquals(fingerprint(makeSignature("secret")), fingerprint(makeSignature(null)));
+        assertEquals(fingerprint(Arrays.asList(makeSignature("secret"))), fingerprint(Arrays.asList(makeSignature("other"))));
+    }
+
+    @Test
+    public void testNames() throws IOException {
+        assertNotEquals(new BuildFingerprint().add("a", "1").add("b", null).build(), new BuildFingerprint().add("a", null).add("b", "1").build());
+    }
+}
@@ -0,0 +1,77 @@
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.packager.rpm.build.DigestAlgorithm;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DuplicateFilesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(final String name, final String content) throws IOException {
+        final Path file = this.folder.getRoot().toPath().resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testFind() throws IOException {
+        final Path a = write("lib1/a.jar", "jar content");
+        final Path b = write("lib2/a.jar", "jar content");
+        final Path c = write("lib3/a.jar", "jar content");
+        final Path other = write("lib3/b.jar", "jar_content"); // same size
+        final Path license1 = write("LICENSE", "license");
+        final Path license2 = write("doc/LICENSE", "license");
+        final Path empty1 = write("empty1", "");
+        final Path empty2 = write("empty2", "");
+
+        final Map<Path, Path> result;
+        try (FileDigests digests = new FileDigests(DigestAlgorithm.SHA256, 2)) {
+            result = DuplicateFiles.find(Arrays.asList(license1, a, b, other, c, license2, empty1, empty2), digests);
+        }
+
+        final Map<Path, Path> expected = new LinkedHashMap<>();
+        expected.put(b, a);
+        expected.put(c, a);
+        expected.put(license2, license1);
+        assertEquals(expected, result);
+        assertEquals(Arrays.asList(b, c, license2), Arrays.asList(result.keySet().toArray()));
+    }
+
+    /**
+     * Files with the same digest are still compared byte by byte
+     */
+    @Test
+    public void testDigestCollision() throws IOException {
+        final Path a = write("a", "aaaa");
+        final Path b = write("b", "bbbb");
+
+        // a digest algorithm where everything collides
+        final FileDigests digests = new FileDigests(DigestAlgorithm.SHA256, 1) {
+            @Override
+            public FileDigest get(final Path file) {
+                return new FileDigest(4, new byte[1]);
+            }
+        };
+
+        try {
+            assertTrue(DuplicateFiles.find(Arrays.asList(a, b), digests).isEmpty());
+        } finally {
+            digests.close();
+        }
+    }
+}
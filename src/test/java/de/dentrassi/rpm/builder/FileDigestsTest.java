@@ -0,0 +1,60 @@
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.eclipse.packager.rpm.build.DigestAlgorithm;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileDigestsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDigestMatchesSingleThreaded() throws IOException {
+        final List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final Path file = this.folder.newFile("file" + i).toPath();
+            Files.write(file, ("content-" + i).getBytes(UTF_8));
+            files.add(file);
+        }
+
+        try (FileDigests digests = new FileDigests(DigestAlgorithm.SHA256, 4)) {
+            digests.submit(files);
+
+            for (final Path file : files) {
+                final FileDigests.FileDigest digest = digests.get(file);
+                assertEquals(Files.size(file), digest.getSize());
+                assertEquals(DigestUtils.sha256Hex(Files.readAllBytes(file)), digest.getDigestHex());
+            }
+        }
+    }
+
+    @Test
+    public void testUnscheduledFile() throws IOException {
+        final Path file = this.folder.newFile("empty").toPath();
+
+        try (FileDigests digests = new FileDigests(DigestAlgorithm.MD5, 1)) {
+            final FileDigests.FileDigest digest = digests.get(file);
+            assertEquals(0, digest.getSize());
+            assertEquals(DigestUtils.md5Hex(new byte[0]), digest.getDigestHex());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingFile() throws IOException {
+        try (FileDigests digests = new FileDigests(DigestAlgorithm.SHA256, 2)) {
+            digests.get(this.folder.getRoot().toPath().resolve("missing"));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package de.dentrassi.rpm.builder;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import org.eclipse.packager.rpm.FileFlags;
+import org.eclipse.packager.rpm.build.FileInformation;
+import org.eclipse.packager.rpm.build.PayloadEntryType;
+import org.junit.Test;
+
+public class FileInformationCacheTest {
+
+    private static RulesetEvaluator makeEvaluator() {
+        final When when = new When();
+        when.setPrefix("/etc/");
+
+        final Rule rule = new Rule();
+        rule.setWhen(when);
+        rule.setUser("app");
+        rule.setMode("0600");
+        rule.setConfiguration(true);
+
+        final Ruleset ruleset = new Ruleset();
+        ruleset.setId("default");
+        ruleset.setRules(new ArrayList<>(asList(rule)));
+
+        return new RulesetEvaluator(asList(ruleset));
+    }
+
+    @Test
+    public void testHitsAndMisses() throws IOException {
+        final RulesetEvaluator eval = makeEvaluator();
+        final FileInformationCache cache = new FileInformationCache();
+        final MojoFileInformationProvider provider = new MojoFileInformationProvider(eval, "default", null, null, null, cache);
+
+        provider.provide("/etc/a.conf", Paths.get("a.conf"), PayloadEntryType.FILE);
+        provider.provide("/etc/b.conf", Paths.get("b.conf"), PayloadEntryType.FILE);
+        provider.provide("/usr/a", Paths.get("a"), PayloadEntryType.FILE);
+        provider.provide("/usr/b", Paths.get("b"), PayloadEntryType.FILE);
+
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getTemplates());
+    }
+
+    @Test
+    public void testSameAsUncached() throws IOException {
+        final RulesetEvaluator eval = makeEvaluator();
+        final MojoFileInformationProvider cached = new MojoFileInformationProvider(eval, "default", null, null, null, new FileInformationCache());
+        final MojoFileInformationProvider uncached = new MojoFileInformationProvider(eval, "default", null, null, null);
+
+        for (final String name : asList("/etc/a.conf", "/etc/b.conf", "/usr/a", "/usr/b")) {
+            final FileInformation expected = uncached.provide(name, Paths.get("x"), PayloadEntryType.FILE);
+            final FileInformation actual = cached.provide(name, Paths.get("x"), PayloadEntryType.FILE);
+
+            assertEquals(expected.getUser(), actual.getUser());
+            assertEquals(expected.getGroup(), actual.getGroup());
+            assertEquals(expected.getMode(), actual.getMode());
+            assertEquals(expected.getFileFlags(), actual.getFileFlags());
+            assertEquals(expected.getVerifyFlags(), actual.getVerifyFlags());
+        }
+    }
+
+    @Test
+    public void testCopiesAreIndependent() throws IOException {
+        final FileInformationCache cache = new FileInformationCache();
+        final MojoFileInformationProvider provider = new MojoFileInformationProvider(makeEvaluator(), "default", null, null, null, cache);
+
+        final FileInformation first = provider.provide("/etc/a.conf", Paths.get("a.conf"), PayloadEntryType.FILE);
+        first.getFileFlags().add(FileFlags.DOC);
+        first.setUser("other");
+
+        final FileInformation second = provider.provide("/etc/b.conf", Paths.get("b.conf"), PayloadEntryType.FILE);
+        assertFalse(second.getFileFlags().contains(FileFlags.DOC));
+        assertEquals("app", second.getUser());
+    }
+}
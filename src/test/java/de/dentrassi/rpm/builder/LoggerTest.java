@@ -0,0 +1,34 @@
+package de.dentrassi.rpm.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+public class LoggerTest {
+
+    @Test
+    public void testDebugDisabled() {
+        final Logger logger = new Logger(new SystemStreamLog());
+        assertFalse(logger.isDebugEnabled());
+
+        final AtomicInteger calls = new AtomicInteger();
+        logger.debug(() -> {
+            calls.incrementAndGet();
+            return "message";
+        });
+
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void testDebugDisabledNoFormat() {
+        final Logger logger = new Logger(new SystemStreamLog());
+
+        // would fail with an IllegalFormatException if the message was formatted
+        logger.debug("%d", "not a number");
+    }
+}
@@ -0,0 +1,107 @@
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PackagePlacementTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path source;
+
+    private Path target;
+
+    private String checksum;
+
+    @Before
+    public void setup() throws IOException {
+        this.source = TestPackages.build(this.folder.newFolder().toPath(), "foo");
+        Files.setLastModifiedTime(this.source, FileTime.fromMillis(1_000_000_000_000L));
+        this.target = this.folder.newFolder().toPath().resolve(this.source.getFileName());
+        this.checksum = YumPackage.read(this.source, null).getChecksum();
+    }
+
+    private void assertPlaced() throws IOException {
+        assertArrayEquals(Files.readAllBytes(this.source), Files.readAllBytes(this.target));
+        assertEquals(Files.getLastModifiedTime(this.source), Files.getLastModifiedTime(this.target));
+    }
+
+    @Test
+    public void testCopy() throws IOException {
+        Files.write(this.target, "old".getBytes(UTF_8));
+
+        assertEquals(PackagePlacement.COPY, PackagePlacement.COPY.place(this.source, this.target, this.checksum));
+        assertPlaced();
+        assertFalse(Files.isSameFile(this.source, this.target));
+    }
+
+    @Test
+    public void testHardlink() throws IOException {
+        Files.write(this.target, "old".getBytes(UTF_8));
+
+        assertEquals(PackagePlacement.HARDLINK, PackagePlacement.HARDLINK.place(this.source, this.target, this.checksum));
+        assertPlaced();
+        assertTrue(Files.isSameFile(this.source, this.target));
+        assertFalse(Files.isSymbolicLink(this.target));
+
+        // again
+        assertEquals(PackagePlacement.HARDLINK, PackagePlacement.HARDLINK.place(this.source, this.target, this.checksum));
+        assertTrue(Files.isSameFile(this.source, this.target));
+    }
+
+    @Test
+    public void testSymlink() throws IOException {
+        Files.write(this.target, "old".getBytes(UTF_8));
+
+        assertEquals(PackagePlacement.SYMLINK, PackagePlacement.SYMLINK.place(this.source, this.target, this.checksum));
+        assertPlaced();
+        assertTrue(Files.isSymbolicLink(this.target));
+        assertEquals(this.source.toAbsolutePath(), Files.readSymbolicLink(this.target));
+
+        // replace a symlink with a copy
+        assertEquals(PackagePlacement.COPY, PackagePlacement.COPY.place(this.source, this.target, this.checksum));
+        assertPlaced();
+        assertFalse(Files.isSymbolicLink(this.target));
+    }
+
+    @Test
+    public void testTransfer() throws IOException {
+        Files.write(this.target, "old".getBytes(UTF_8));
+
+        assertEquals(PackagePlacement.TRANSFER, PackagePlacement.TRANSFER.place(this.source, this.target, this.checksum));
+        assertPlaced();
+        assertFalse(Files.isSameFile(this.source, this.target));
+    }
+
+    @Test
+    public void testCopyIfDifferent() throws IOException {
+        assertEquals(PackagePlacement.COPY, PackagePlacement.COPY_IF_DIFFERENT.place(this.source, this.target, this.checksum));
+        assertPlaced();
+
+        // same content, the file is kept
+        Files.setLastModifiedTime(this.target, FileTime.fromMillis(2_000_000_000_000L));
+        assertEquals(PackagePlacement.COPY_IF_DIFFERENT, PackagePlacement.COPY_IF_DIFFERENT.place(this.source, this.target, this.checksum));
+        assertEquals(2_000_000_000_000L, Files.getLastModifiedTime(this.target).toMillis());
+
+        // different content, same size
+        final byte[] data = Files.readAllBytes(this.source);
+        data[data.length - 1] ^= 1;
+        Files.write(this.target, data);
+        assertEquals(PackagePlacement.COPY, PackagePlacement.COPY_IF_DIFFERENT.place(this.source, this.target, this.checksum));
+        assertPlaced();
+    }
+}
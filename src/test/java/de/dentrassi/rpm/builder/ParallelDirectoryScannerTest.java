@@ -0,0 +1,156 @@
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParallelDirectoryScannerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+
+    private boolean symbolicLinks;
+
+    @Before
+    public void setup() throws IOException {
+        this.root = this.folder.getRoot().toPath();
+
+        for (final String name : Arrays.asList(
+                "a.txt", "b.jar",
+                "dir1/c.txt", "dir1/d.jar",
+                "dir1/sub/e.txt",
+                "dir2/f.txt",
+                "target/classes/g.class", "target/h.txt",
+                "lib/x/i.jar", "lib/y/j.jar")) {
+            final Path file = this.root.resolve(name);
+            Files.createDirectories(file.getParent());
+            Files.write(file, name.getBytes(UTF_8));
+        }
+        Files.createDirectories(this.root.resolve("empty"));
+
+        try {
+            Files.createSymbolicLink(this.root.resolve("link.txt"), this.root.resolve("a.txt"));
+            Files.createSymbolicLink(this.root.resolve("linkdir"), this.root.resolve("dir2"));
+            Files.createSymbolicLink(this.root.resolve("dangling"), this.root.resolve("missing"));
+            this.symbolicLinks = true;
+        } catch (final IOException | UnsupportedOperationException e) {
+            this.symbolicLinks = false;
+        }
+    }
+
+    private void assertSameAsPlexus(final String[] includes, final String[] excludes) {
+        final DirectoryScanner expected = new DirectoryScanner();
+        expected.setBasedir(this.root.toFile());
+        expected.setCaseSensitive(true);
+        expected.setFollowSymlinks(true);
+        expected.setIncludes(includes);
+        expected.setExcludes(excludes);
+        expected.scan();
+
+        final ParallelDirectoryScanner actual = new ParallelDirectoryScanner();
+        actual.setBasedir(this.root.toFile());
+        actual.setCaseSensitive(true);
+        actual.setIncludes(includes);
+        actual.setExcludes(excludes);
+        actual.scan();
+
+        final String[] files = expected.getIncludedFiles();
+        Arrays.sort(files);
+        final String[] dirs = expected.getIncludedDirectories();
+        Arrays.sort(dirs);
+
+        assertArrayEquals(files, actual.getIncludedFiles());
+        assertArrayEquals(dirs, actual.getIncludedDirectories());
+    }
+
+    @Test
+    public void testAll() {
+        assertSameAsPlexus(null, null);
+    }
+
+    @Test
+    public void testIncludes() {
+        assertSameAsPlexus(new String[] { "**/*.jar", "dir1/" }, null);
+    }
+
+    @Test
+    public void testExcludes() {
+        assertSameAsPlexus(null, new String[] { "target/**", "**/*.txt" });
+    }
+
+    /**
+     * Excluding only the directory itself, still includes its content
+     */
+    @Test
+    public void testExcludeDirectoryOnly() {
+        assertSameAsPlexus(null, new String[] { "dir1", "lib/*" });
+    }
+
+    @Test
+    public void testIncludesAndExcludes() {
+        assertSameAsPlexus(new String[] { "dir1/**", "lib/**/*.jar" }, new String[] { "**/sub/**", "lib/y/" });
+    }
+
+    @Test
+    public void testSymbolicLinks() {
+        assumeTrue(this.symbolicLinks);
+
+        final ParallelDirectoryScanner scanner = new ParallelDirectoryScanner();
+        scanner.setBasedir(this.root.toFile());
+        scanner.scan();
+
+        assertTrue(scanner.isSymbolicLink("link.txt"));
+        assertTrue(scanner.isSymbolicLink("linkdir"));
+        assertFalse(scanner.isSymbolicLink("a.txt"));
+        assertTrue(Arrays.asList(scanner.getIncludedFiles()).contains("linkdir" + File.separator + "f.txt"));
+        assertFalse(Arrays.asList(scanner.getIncludedFiles()).contains("dangling"));
+    }
+
+    @Test
+    public void testLinkedBaseDirectory() throws IOException {
+        assumeTrue(this.symbolicLinks);
+
+        final Path link = this.folder.newFolder().toPath().resolve("base");
+        Files.createSymbolicLink(link, this.root.resolve("dir1"));
+
+        final ParallelDirectoryScanner scanner = new ParallelDirectoryScanner();
+        scanner.setBasedir(link.toFile());
+        scanner.scan();
+
+        assertArrayEquals(new String[] { "c.txt", "d.jar", "sub" + File.separator + "e.txt" }, scanner.getIncludedFiles());
+    }
+
+    @Test
+    public void testLoop() throws IOException {
+        assumeTrue(this.symbolicLinks);
+
+        Files.createSymbolicLink(this.root.resolve("dir1/sub/loop"), this.root.resolve("dir1"));
+
+        final ParallelDirectoryScanner scanner = new ParallelDirectoryScanner();
+        scanner.setBasedir(this.root.toFile());
+        scanner.setIncludes(new String[] { "dir1/**" });
+        scanner.scan();
+
+        final String loop = String.join(File.separator, "dir1", "sub", "loop");
+        assertArrayEquals(new String[] { loop }, scanner.getLoops());
+        assertTrue(Arrays.asList(scanner.getIncludedDirectories()).contains(loop));
+        assertEquals(3, scanner.getIncludedFiles().length);
+    }
+}
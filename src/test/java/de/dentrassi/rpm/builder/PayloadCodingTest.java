@@ -0,0 +1,63 @@
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.eclipse.packager.rpm.RpmTag;
+import org.eclipse.packager.rpm.build.BuilderOptions;
+import org.eclipse.packager.rpm.build.RpmBuilder.Version;
+import org.eclipse.packager.rpm.coding.PayloadCoding;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PayloadCodingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testEval() throws MojoFailureException {
+        assertEquals(PayloadCoding.NONE, RpmMojo.evalPayloadCoding("none"));
+        assertEquals(PayloadCoding.GZIP, RpmMojo.evalPayloadCoding("gzip"));
+        assertEquals(PayloadCoding.XZ, RpmMojo.evalPayloadCoding("XZ"));
+        assertEquals(PayloadCoding.ZSTD, RpmMojo.evalPayloadCoding("zstd"));
+        assertThrows(MojoFailureException.class, () -> RpmMojo.evalPayloadCoding("lz4"));
+    }
+
+    @Test
+    public void testRequiredVersion() {
+        assertEquals(Version.V4_11, RpmMojo.requiredRpmVersion(PayloadCoding.GZIP));
+        assertEquals(Version.V4_11, RpmMojo.requiredRpmVersion(PayloadCoding.XZ));
+        assertEquals(Version.V4_14, RpmMojo.requiredRpmVersion(PayloadCoding.ZSTD));
+    }
+
+    /**
+     * The coding and level end up in the header, and the payload can be read
+     * again
+     */
+    @Test
+    public void testXzLevel() throws IOException {
+        final BuilderOptions options = new BuilderOptions();
+        options.setPayloadCoding(PayloadCoding.XZ);
+        options.setPayloadFlags("1");
+        final Path rpm = TestPackages.build(this.folder.getRoot().toPath(), "test1", options);
+
+        try (RpmPayloadReader reader = RpmPayloadReader.open(rpm)) {
+            assertEquals("xz", reader.getPayloadHeader().getTag(RpmTag.PAYLOAD_CODING));
+            assertEquals("1", reader.getPayloadHeader().getTag(RpmTag.PAYLOAD_FLAGS));
+
+            RpmPayloadReader.Entry entry;
+            while ((entry = reader.next()) != null) {
+                if (entry.getName().equals("/etc/test1.conf")) {
+                    assertEquals("foo=bar\n", new String(entry.readContent(), UTF_8));
+                }
+            }
+        }
+    }
+}
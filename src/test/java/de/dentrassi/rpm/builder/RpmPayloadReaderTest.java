@@ -0,0 +1,124 @@
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioConstants;
+import org.eclipse.packager.rpm.build.BuilderOptions;
+import org.eclipse.packager.rpm.build.PayloadEntryType;
+import org.eclipse.packager.rpm.coding.PayloadCoding;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RpmPayloadReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testForEach() throws IOException {
+        final Path rpm = TestPackages.build(this.folder.getRoot().toPath(), "test1");
+
+        final Map<String, RpmPayloadReader.Entry> entries = new LinkedHashMap<>();
+        final Map<String, String> contents = new LinkedHashMap<>();
+
+        try (RpmPayloadReader reader = RpmPayloadReader.open(rpm)) {
+            reader.forEach(entry -> {
+                entries.put(entry.getName(), entry);
+                if (entry.getType() == PayloadEntryType.FILE) {
+                    contents.put(entry.getName(), new String(entry.readContent(), UTF_8));
+                }
+            });
+        }
+
+        final RpmPayloadReader.Entry conf = entries.get("/etc/test1.conf");
+        assertEquals(PayloadEntryType.FILE, conf.getType());
+        assertEquals(8, conf.getSize());
+        assertEquals("root", conf.getInformation().getUser());
+        assertEquals("root", conf.getInformation().getGroup());
+        assertEquals(0644, conf.getInformation().getMode());
+        assertEquals("foo=bar\n", contents.get("/etc/test1.conf"));
+        assertEquals("Hello World\n", contents.get("/usr/share/test1/README"));
+
+        final RpmPayloadReader.Entry dir = entries.get("/usr/share/test1");
+        assertEquals(PayloadEntryType.DIRECTORY, dir.getType());
+        assertNull(dir.getLinkTo());
+
+        final RpmPayloadReader.Entry link = entries.get("/usr/bin/test1");
+        assertEquals(PayloadEntryType.SYMBOLIC_LINK, link.getType());
+        assertEquals("/usr/share/test1/README", link.getLinkTo());
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        final Path rpm = TestPackages.build(this.folder.getRoot().toPath(), "test1");
+
+        final List<String> names;
+        try (RpmPayloadReader reader = RpmPayloadReader.open(rpm)) {
+            names = reader.stream()
+                    .filter(entry -> entry.getType() == PayloadEntryType.FILE)
+                    .map(RpmPayloadReader.Entry::getName)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        assertEquals(Arrays.asList("/etc/test1.conf", "/usr/share/test1/README"), names);
+    }
+
+    /**
+     * Entries which are not in the header file list get their information
+     * from the CPIO entry
+     */
+    @Test
+    public void testWithoutHeaderInformation() throws IOException {
+        final BuilderOptions options = new BuilderOptions();
+        options.setPayloadCoding(PayloadCoding.GZIP);
+        final Path rpm = TestPackages.build(this.folder.getRoot().toPath(), "test1", options);
+
+        TestPackages.replacePayload(rpm, cpio -> {
+            final CpioArchiveEntry file = new CpioArchiveEntry(CpioConstants.FORMAT_NEW, "./opt/extra");
+            file.setMode(CpioConstants.C_ISREG | 0600);
+            TestPackages.addEntry(cpio, file, "extra".getBytes(UTF_8));
+
+            final CpioArchiveEntry link = new CpioArchiveEntry(CpioConstants.FORMAT_NEW, "./opt/link");
+            link.setMode(CpioConstants.C_ISLNK | 0777);
+            TestPackages.addEntry(cpio, link, "extra".getBytes(UTF_8));
+        });
+
+        try (RpmPayloadReader reader = RpmPayloadReader.open(rpm)) {
+            final RpmPayloadReader.Entry file = reader.next();
+            assertEquals("/opt/extra", file.getName());
+            assertEquals(0600, file.getInformation().getMode());
+            assertNull(file.getInformation().getUser());
+            assertNull(file.getDigest());
+            assertEquals("extra", new String(file.readContent(), UTF_8));
+
+            final RpmPayloadReader.Entry link = reader.next();
+            assertEquals("/opt/link", link.getName());
+            assertEquals("extra", link.getLinkTo());
+
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testSkipContent() throws IOException {
+        final Path rpm = TestPackages.build(this.folder.getRoot().toPath(), "test1");
+
+        try (RpmPayloadReader reader = RpmPayloadReader.open(rpm)) {
+            assertTrue(reader.stream().count() >= 4);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.eclipse.packager.rpm.RpmSignatureTag;
+import org.eclipse.packager.rpm.RpmTag;
+import org.eclipse.packager.rpm.header.Header;
+import org.eclipse.packager.rpm.parse.InputHeader;
+import org.eclipse.packager.rpm.parse.RpmInputStream;
+import org.eclipse.packager.rpm.signature.SignatureProcessor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RpmResignerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Records the length of the data it was fed as "signature"
+     */
+    private static class FakeSigner implements SignatureProcessor {
+        private final String name;
+
+        private long header;
+
+        private long payload;
+
+        FakeSigner(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void feedHeader(final ByteBuffer header) {
+            this.header += header.remaining();
+        }
+
+        @Override
+        public void feedPayloadData(final ByteBuffer data) {
+            this.payload += data.remaining();
+        }
+
+        @Override
+        public void finish(final Header<RpmSignatureTag> signature) {
+            signature.putBlob(RpmSignatureTag.RSAHEADER, (this.name + ":" + this.header).getBytes(UTF_8));
+            signature.putBlob(RpmSignatureTag.PGP, (this.name + ":" + this.header + ":" + this.payload).getBytes(UTF_8));
+        }
+    }
+
+    private static class Parsed {
+        final InputHeader<RpmSignatureTag> signature;
+
+        final long headerStart;
+
+        Parsed(final Path file) throws IOException {
+            try (RpmInputStream in = new RpmInputStream(Files.newInputStream(file))) {
+                this.signature = in.getSignatureHeader();
+                this.headerStart = in.getPayloadHeader().getStart();
+            }
+        }
+
+        byte[] blob(final RpmSignatureTag tag) {
+            final Object value = this.signature.getTag(tag);
+            if (value instanceof ByteBuffer) {
+                final ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+                final byte[] result = new byte[buffer.remaining()];
+                buffer.get(result);
+                return result;
+            }
+            return (byte[]) value;
+        }
+    }
+
+    private static byte[] tail(final Path file, final long start) throws IOException {
+        final byte[] data = Files.readAllBytes(file);
+        return Arrays.copyOfRange(data, (int) start, data.length);
+    }
+
+    @Test
+    public void testResign() throws IOException {
+        final Path rpm = TestPackages.build(this.folder.newFolder("in").toPath(), "test1");
+        final Path signed = this.folder.newFolder("out").toPath().resolve("test1.rpm");
+
+        final Parsed before = new Parsed(rpm);
+
+        new RpmResigner(() -> Collections.singletonList(new FakeSigner("key1"))).resign(rpm, signed);
+
+        final Parsed after = new Parsed(signed);
+
+        // existing entries are kept
+        assertArrayEquals(before.blob(RpmSignatureTag.MD5), after.blob(RpmSignatureTag.MD5));
+        assertEquals(before.signature.getTag(RpmSignatureTag.SHA256HEADER), after.signature.getTag(RpmSignatureTag.SHA256HEADER));
+
+        // header and payload are unchanged
+        assertArrayEquals(tail(rpm, before.headerStart), tail(signed, after.headerStart));
+
+        final long payloadLength = Files.size(signed) - after.headerStart;
+        final String signature = new String(after.blob(RpmSignatureTag.PGP), UTF_8);
+        assertEquals("key1:", signature.substring(0, 5));
+        final String[] lengths = signature.substring(5).split(":");
+        assertEquals(payloadLength, Long.parseLong(lengths[0]) + Long.parseLong(lengths[1]));
+
+        // the payload can still be read
+        try (RpmPayloadReader reader = RpmPayloadReader.open(signed)) {
+            assertEquals("test1", reader.getPayloadHeader().getTag(RpmTag.NAME));
+            assertEquals(4, reader.stream().count());
+        }
+    }
+
+    @Test
+    public void testResignInPlace() throws IOException {
+        final Path rpm = TestPackages.build(this.folder.getRoot().toPath(), "test1");
+
+        new RpmResigner(() -> Collections.singletonList(new FakeSigner("key1"))).resign(rpm, rpm);
+        final byte[] first = Files.readAllBytes(rpm);
+
+        // replace the signature with a different key
+        new RpmResigner(() -> Collections.singletonList(new FakeSigner("key2"))).resign(rpm, rpm);
+
+        final Parsed parsed = new Parsed(rpm);
+        assertEquals("key2:", new String(parsed.blob(RpmSignatureTag.RSAHEADER), UTF_8).substring(0, 5));
+        assertEquals(first.length, Files.size(rpm));
+        assertFalse(Files.exists(rpm.resolveSibling(rpm.getFileName() + ".tmp")));
+    }
+
+    @Test
+    public void testResignKeepsPermissions() throws IOException {
+        final Path rpm = TestPackages.build(this.folder.getRoot().toPath(), "test1");
+        assumeTrue(Files.getFileAttributeView(rpm, PosixFileAttributeView.class) != null);
+
+        final Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(rpm, permissions);
+
+        new RpmResigner(() -> Collections.singletonList(new FakeSigner("key1"))).resign(rpm, rpm);
+        assertEquals(permissions, Files.getPosixFilePermissions(rpm));
+
+        // a new target file gets the permissions of the source
+        final Path signed = this.folder.newFolder("out").toPath().resolve("test1.rpm");
+        new RpmResigner(() -> Collections.singletonList(new FakeSigner("key1"))).resign(rpm, signed);
+        assertEquals(permissions, Files.getPosixFilePermissions(signed));
+    }
+
+    @Test
+    public void testNotAnRpm() throws IOException {
+        final Path file = this.folder.getRoot().toPath().resolve("test.rpm");
+        Files.write(file, new byte[200]);
+
+        final Path target = this.folder.getRoot().toPath().resolve("out.rpm");
+        assertThrows(IOException.class, () -> new RpmResigner(Collections::emptyList).resign(file, target));
+        assertFalse(Files.exists(target));
+        assertFalse(Files.exists(target.resolveSibling("out.rpm.tmp")));
+    }
+}
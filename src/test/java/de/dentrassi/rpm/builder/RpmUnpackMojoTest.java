@@ -0,0 +1,421 @@
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveOutputStream;
+import org.apache.commons.compress.archivers.cpio.CpioConstants;
+import org.apache.maven.plugin.MojoFailureException;
+import org.eclipse.packager.rpm.RpmTag;
+import org.eclipse.packager.rpm.RpmTagValue;
+import org.eclipse.packager.rpm.RpmVersion;
+import org.eclipse.packager.rpm.build.BuilderContext;
+import org.eclipse.packager.rpm.build.BuilderOptions;
+import org.eclipse.packager.rpm.build.RpmBuilder;
+import org.eclipse.packager.rpm.coding.PayloadCoding;
+import org.eclipse.packager.rpm.parse.RpmInputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RpmUnpackMojoTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Instant DIRECTORY_TIMESTAMP = Instant.ofEpochSecond(1_000_000_000L);
+
+    private static final byte[] LARGE = new byte[3 * 256 * 1024 + 17];
+
+    static {
+        new Random(4711).nextBytes(LARGE);
+    }
+
+    private Path buildPackage() throws IOException {
+        try (RpmBuilder builder = new RpmBuilder("unpack", new RpmVersion("1.0.0", "1"), "noarch", this.folder.newFolder().toPath(), new BuilderOptions())) {
+            final BuilderContext ctx = builder.newContext();
+            ctx.addDirectory("/opt/unpack", info -> {
+                info.setMode((short) 0750);
+                info.setTimestamp(DIRECTORY_TIMESTAMP);
+            });
+            ctx.addDirectory("/opt/unpack/data", info -> info.setTimestamp(DIRECTORY_TIMESTAMP));
+            ctx.addFile("/opt/unpack/large.bin", LARGE);
+            ctx.addFile("/opt/unpack/empty", new byte[0]);
+            ctx.addFile("/opt/unpack/bin/run.sh", "#!/bin/sh\n".getBytes(UTF_8), info -> info.setMode((short) 0755));
+            for (int i = 0; i < 50; i++) {
+                ctx.addFile("/opt/unpack/data/file" + i, ("content " + i).getBytes(UTF_8));
+            }
+            builder.build();
+            return builder.getTargetFile();
+        }
+    }
+
+    private Path unpack(final Path rpm, final int threads) throws Exception {
+        return unpack(rpm, threads, null, null);
+    }
+
+    private Path unpack(final Path rpm, final int threads, final String[] includes, final String[] excludes) throws Exception {
+        return unpack(rpm, threads, includes, excludes, false);
+    }
+
+    private Path unpack(final Path rpm, final int threads, final String[] includes, final String[] excludes, final boolean verify) throws Exception {
+        final Path target = this.folder.newFolder().toPath();
+
+        final RpmUnpackMojo mojo = new RpmUnpackMojo();
+        mojo.setVerify(verify);
+        mojo.setIncludes(includes);
+        mojo.setExcludes(excludes);
+        mojo.setRpmFile(rpm.toFile());
+        mojo.setUnpackDirectory(target.toFile());
+        mojo.setPreserveLastModificationTime(true);
+        mojo.setUnpackThreads(threads);
+        mojo.execute();
+
+        return target;
+    }
+
+    private static Map<String, String> describe(final Path root) throws IOException {
+        final Map<String, String> result = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    result.put(root.relativize(file).toString(), String.format("%s %s %s",
+                            Files.size(file), Files.getLastModifiedTime(file), Files.getPosixFilePermissions(file)));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        final Path rpm = buildPackage();
+
+        final Path expected = unpack(rpm, 1);
+        final Path actual = unpack(rpm, 3);
+
+        assertEquals(describe(expected), describe(actual));
+        assertEquals(53, describe(actual).size());
+        assertArrayEquals(LARGE, Files.readAllBytes(actual.resolve("opt/unpack/large.bin")));
+        assertEquals(0, Files.size(actual.resolve("opt/unpack/empty")));
+        assertEquals("content 42", new String(Files.readAllBytes(actual.resolve("opt/unpack/data/file42")), UTF_8));
+    }
+
+    @Test
+    public void testParallelReplace() throws Exception {
+        final Path rpm = buildPackage();
+        final Path target = unpack(rpm, 3);
+
+        Files.write(target.resolve("opt/unpack/large.bin"), "old".getBytes(UTF_8));
+
+        final RpmUnpackMojo mojo = new RpmUnpackMojo();
+        mojo.setRpmFile(rpm.toFile());
+        mojo.setUnpackDirectory(target.toFile());
+        mojo.setUnpackThreads(3);
+        mojo.execute();
+
+        assertArrayEquals(LARGE, Files.readAllBytes(target.resolve("opt/unpack/large.bin")));
+    }
+
+    /**
+     * A payload ending in the middle of a file must not leave a partial file
+     */
+    @Test
+    public void testParallelTruncated() throws Exception {
+        final Path rpm = buildPackage();
+        final byte[] data = Files.readAllBytes(rpm);
+        Files.write(rpm, Arrays.copyOf(data, data.length - LARGE.length / 2));
+
+        final Path target = this.folder.newFolder().toPath();
+
+        final RpmUnpackMojo mojo = new RpmUnpackMojo();
+        mojo.setRpmFile(rpm.toFile());
+        mojo.setUnpackDirectory(target.toFile());
+        mojo.setUnpackThreads(3);
+
+        assertThrows(MojoFailureException.class, mojo::execute);
+        assertTrue(Files.isDirectory(target.resolve("opt/unpack")));
+        assertFalse(Files.exists(target.resolve("opt/unpack/large.bin")));
+    }
+
+    @Test
+    public void testDirectoryAttributes() throws Exception {
+        final Path rpm = buildPackage();
+
+        for (final int threads : new int[] { 1, 3 }) {
+            final Path target = unpack(rpm, threads);
+
+            // not changed by creating the children
+            assertEquals(DIRECTORY_TIMESTAMP, Files.getLastModifiedTime(target.resolve("opt/unpack")).toInstant());
+            assertEquals(DIRECTORY_TIMESTAMP, Files.getLastModifiedTime(target.resolve("opt/unpack/data")).toInstant());
+            assertEquals(PosixFilePermissions.fromString("rwxr-x---"), Files.getPosixFilePermissions(target.resolve("opt/unpack")));
+        }
+    }
+
+    @Test
+    public void testSelection() throws Exception {
+        final Path rpm = buildPackage();
+
+        for (final int threads : new int[] { 1, 3 }) {
+            final Path target = unpack(rpm, threads, new String[] { "opt/unpack/data/file1*", "/opt/unpack/bin/" }, new String[] { "**" + "/file12" });
+
+            final Map<String, String> files = describe(target);
+            assertEquals(11, files.size());
+            assertTrue(files.containsKey("opt/unpack/bin/run.sh"));
+            assertTrue(files.containsKey("opt/unpack/data/file1"));
+            assertTrue(files.containsKey("opt/unpack/data/file19"));
+            assertFalse(files.containsKey("opt/unpack/data/file12"));
+            assertFalse(files.containsKey("opt/unpack/large.bin"));
+        }
+    }
+
+    @Test
+    public void testSelectionStopsEarly() throws Exception {
+        final Path rpm = buildPackage();
+
+        // the large file is the first file of the payload, cut off everything after it
+        final byte[] data = Files.readAllBytes(rpm);
+        Files.write(rpm, Arrays.copyOf(data, data.length - 256));
+
+        for (final int threads : new int[] { 1, 3 }) {
+            final Path target = unpack(rpm, threads, new String[] { "opt/unpack/large.bin" }, null);
+            assertEquals(Collections.singleton("opt/unpack/large.bin"), describe(target).keySet());
+            assertArrayEquals(LARGE, Files.readAllBytes(target.resolve("opt/unpack/large.bin")));
+        }
+
+        assertThrows(MojoFailureException.class, () -> unpack(rpm, 1));
+    }
+
+    @Test
+    public void testSymbolicLink() throws Exception {
+        final Path rpm = TestPackages.build(this.folder.newFolder().toPath(), "foo");
+
+        for (final int threads : new int[] { 1, 3 }) {
+            final Path target = unpack(rpm, threads);
+
+            final Path link = target.resolve("usr/bin/foo");
+            assertTrue(Files.isSymbolicLink(link));
+            // absolute targets are kept inside the unpack directory
+            assertEquals(Paths.get("../share/foo/README"), Files.readSymbolicLink(link));
+            assertEquals("Hello World\n", new String(Files.readAllBytes(link), UTF_8));
+        }
+    }
+
+    @Test
+    public void testSymbolicLinkOutside() throws Exception {
+        final BuilderOptions options = new BuilderOptions();
+        options.setPayloadCoding(PayloadCoding.GZIP);
+        final Path rpm = TestPackages.build(this.folder.newFolder().toPath(), "foo", options);
+
+        TestPackages.replacePayload(rpm, cpio -> {
+            final CpioArchiveEntry entry = new CpioArchiveEntry(CpioConstants.FORMAT_NEW, "./usr/bin/foo");
+            entry.setMode(CpioConstants.C_ISLNK | 0777);
+            TestPackages.addEntry(cpio, entry, "../../../etc/passwd".getBytes(UTF_8));
+        });
+
+        assertThrows(MojoFailureException.class, () -> unpack(rpm, 1));
+    }
+
+    private static void addLink(final CpioArchiveOutputStream cpio, final String name, final String linkTo) throws IOException {
+        final CpioArchiveEntry entry = new CpioArchiveEntry(CpioConstants.FORMAT_NEW, name);
+        entry.setMode(CpioConstants.C_ISLNK | 0777);
+        TestPackages.addEntry(cpio, entry, linkTo.getBytes(UTF_8));
+    }
+
+    private void assertNoEscape(final TestPackages.PayloadWriter writer) throws Exception {
+        final BuilderOptions options = new BuilderOptions();
+        options.setPayloadCoding(PayloadCoding.GZIP);
+        final Path rpm = TestPackages.build(this.folder.newFolder().toPath(), "foo", options);
+
+        TestPackages.replacePayload(rpm, cpio -> {
+            writer.write(cpio);
+
+            final CpioArchiveEntry evil = new CpioArchiveEntry(CpioConstants.FORMAT_NEW, "./x/esc/evil");
+            evil.setMode(CpioConstants.C_ISREG | 0644);
+            TestPackages.addEntry(cpio, evil, "evil".getBytes(UTF_8));
+        });
+
+        for (final int threads : new int[] { 1, 3 }) {
+            final Path parent = this.folder.newFolder().toPath();
+            final Path target = parent.resolve("unpack");
+
+            final RpmUnpackMojo mojo = new RpmUnpackMojo();
+            mojo.setRpmFile(rpm.toFile());
+            mojo.setUnpackDirectory(target.toFile());
+            mojo.setUnpackThreads(threads);
+
+            assertThrows(MojoFailureException.class, mojo::execute);
+            assertFalse(Files.exists(parent.resolve("evil")));
+        }
+    }
+
+    /**
+     * A chain of links, which only points outside when following the links on disk
+     */
+    @Test
+    public void testSymbolicLinkChainOutside() throws Exception {
+        assertNoEscape(cpio -> {
+            final CpioArchiveEntry dir = new CpioArchiveEntry(CpioConstants.FORMAT_NEW, "./x");
+            dir.setMode(CpioConstants.C_ISDIR | 0755);
+            TestPackages.addEntry(cpio, dir, new byte[0]);
+
+            addLink(cpio, "./x/y", ".");
+            addLink(cpio, "./x/esc", "y/../..");
+        });
+    }
+
+    /**
+     * A link which is valid when created, but points outside after another link replaced a directory
+     */
+    @Test
+    public void testSymbolicLinkReplacedDirectory() throws Exception {
+        assertNoEscape(cpio -> {
+            for (final String name : new String[] { "./x", "./x/d" }) {
+                final CpioArchiveEntry dir = new CpioArchiveEntry(CpioConstants.FORMAT_NEW, name);
+                dir.setMode(CpioConstants.C_ISDIR | 0755);
+                TestPackages.addEntry(cpio, dir, new byte[0]);
+            }
+
+            addLink(cpio, "./x/esc", "d/../..");
+            // same path, the CPIO stream refuses duplicate names
+            addLink(cpio, "x/d", ".");
+        });
+    }
+
+    @Test
+    public void testHardLinks() throws Exception {
+        final BuilderOptions options = new BuilderOptions();
+        options.setPayloadCoding(PayloadCoding.GZIP);
+
+        final Path rpm;
+        try (RpmBuilder builder = new RpmBuilder("links", new RpmVersion("1.0.0", "1"), "noarch", this.folder.newFolder().toPath(), options)) {
+            final BuilderContext ctx = builder.newContext();
+            for (final String name : new String[] { "a", "b", "c", "other" }) {
+                ctx.addFile("/opt/links/" + name, new byte[0]);
+            }
+            builder.build();
+            rpm = builder.getTargetFile();
+        }
+
+        TestPackages.replacePayload(rpm, cpio -> {
+            for (final String name : new String[] { "a", "b", "c" }) {
+                final CpioArchiveEntry entry = new CpioArchiveEntry(CpioConstants.FORMAT_NEW, "./opt/links/" + name);
+                entry.setMode(CpioConstants.C_ISREG | 0644);
+                entry.setInode(42);
+                entry.setNumberOfLinks(3);
+                // only the last entry has the content
+                TestPackages.addEntry(cpio, entry, name.equals("c") ? "shared".getBytes(UTF_8) : new byte[0]);
+            }
+            final CpioArchiveEntry other = new CpioArchiveEntry(CpioConstants.FORMAT_NEW, "./opt/links/other");
+            other.setMode(CpioConstants.C_ISREG | 0644);
+            other.setInode(43);
+            TestPackages.addEntry(cpio, other, "other".getBytes(UTF_8));
+        });
+
+        for (final int threads : new int[] { 1, 3 }) {
+            final Path target = unpack(rpm, threads);
+            final Path dir = target.resolve("opt/links");
+
+            for (final String name : new String[] { "a", "b", "c" }) {
+                assertEquals("shared", new String(Files.readAllBytes(dir.resolve(name)), UTF_8));
+            }
+            assertTrue(Files.isSameFile(dir.resolve("a"), dir.resolve("c")));
+            assertTrue(Files.isSameFile(dir.resolve("b"), dir.resolve("c")));
+            assertEquals("other", new String(Files.readAllBytes(dir.resolve("other")), UTF_8));
+        }
+
+        // only a link is selected, the content comes from a different entry
+        final Path target = unpack(rpm, 1, new String[] { "opt/links/a" }, null);
+        assertEquals("shared", new String(Files.readAllBytes(target.resolve("opt/links/a")), UTF_8));
+        assertFalse(Files.exists(target.resolve("opt/links/c")));
+    }
+
+    @Test
+    public void testVerify() throws Exception {
+        final Path rpm = buildPackage();
+
+        for (final int threads : new int[] { 1, 3 }) {
+            final Path target = unpack(rpm, threads, null, null, true);
+            assertArrayEquals(LARGE, Files.readAllBytes(target.resolve("opt/unpack/large.bin")));
+        }
+    }
+
+    /**
+     * Packages with large files only have the long file sizes
+     */
+    @Test
+    public void testVerifyLongFileSizes() throws Exception {
+        final Path rpm;
+        try (RpmBuilder builder = new RpmBuilder("long", new RpmVersion("1.0.0", "1"), "noarch", this.folder.newFolder().toPath(), new BuilderOptions())) {
+            final BuilderContext ctx = builder.newContext();
+            ctx.addFile("/opt/long/large.bin", LARGE);
+            ctx.addFile("/opt/long/small.txt", "small".getBytes(UTF_8));
+            builder.setHeaderCustomizer(header -> {
+                final int[] sizes = (int[]) ((RpmTagValue) header.get(RpmTag.FILE_SIZES)).getValue();
+                header.remove(RpmTag.FILE_SIZES);
+                header.putLong(5008, Arrays.stream(sizes).asLongStream().toArray());
+            });
+            builder.build();
+            rpm = builder.getTargetFile();
+        }
+
+        try (RpmInputStream in = new RpmInputStream(Files.newInputStream(rpm))) {
+            assertNull(in.getPayloadHeader().getTag(RpmTag.FILE_SIZES));
+        }
+
+        for (final int threads : new int[] { 1, 3 }) {
+            final Path target = unpack(rpm, threads, null, null, true);
+            assertArrayEquals(LARGE, Files.readAllBytes(target.resolve("opt/long/large.bin")));
+        }
+    }
+
+    private Path buildModified(final String content) throws IOException {
+        final BuilderOptions options = new BuilderOptions();
+        options.setPayloadCoding(PayloadCoding.GZIP);
+        final Path rpm = TestPackages.build(this.folder.newFolder().toPath(), "foo", options);
+
+        TestPackages.replacePayload(rpm, cpio -> {
+            final CpioArchiveEntry entry = new CpioArchiveEntry(CpioConstants.FORMAT_NEW, "./etc/foo.conf");
+            entry.setMode(CpioConstants.C_ISREG | 0644);
+            TestPackages.addEntry(cpio, entry, content.getBytes(UTF_8));
+        });
+
+        return rpm;
+    }
+
+    @Test
+    public void testVerifyMismatch() throws Exception {
+        final Path original = buildModified("foo=bar\n");
+        final Path modified = buildModified("foo=baz\n");
+        final Path resized = buildModified("foo=bar2\n");
+
+        for (final int threads : new int[] { 1, 3 }) {
+            unpack(original, threads, null, null, true);
+
+            // not verified
+            unpack(modified, threads, null, null, false);
+
+            assertThrows(MojoFailureException.class, () -> unpack(modified, threads, null, null, true));
+            assertThrows(MojoFailureException.class, () -> unpack(resized, threads, null, null, true));
+        }
+    }
+}
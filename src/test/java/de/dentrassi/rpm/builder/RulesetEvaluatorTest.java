@@ -0,0 +1,190 @@
+package de.dentrassi.rpm.builder;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.eclipse.packager.rpm.FileFlags;
+import org.eclipse.packager.rpm.build.FileInformation;
+import org.eclipse.packager.rpm.build.PayloadEntryType;
+import org.junit.Test;
+
+public class RulesetEvaluatorTest {
+
+    private static Rule rule(final String type, final String prefix, final String suffix, final String user, final String mode, final boolean last) {
+        final Rule rule = new Rule();
+        if (type != null || prefix != null || suffix != null) {
+            final When when = new When();
+            when.setType(type);
+            when.setPrefix(prefix);
+            when.setSuffix(suffix);
+            rule.setWhen(when);
+        }
+        rule.setUser(user);
+        if (mode != null) {
+            rule.setMode(mode);
+        }
+        rule.setLast(last);
+        return rule;
+    }
+
+    private static Ruleset ruleset(final String id, final String parent, final Rule... rules) {
+        final Ruleset ruleset = new Ruleset();
+        ruleset.setId(id);
+        ruleset.setDefaultRuleset(parent);
+        ruleset.setRules(new ArrayList<>(asList(rules)));
+        return ruleset;
+    }
+
+    private static FileInformation eval(final RulesetEvaluator eval, final String ruleId, final PayloadEntryType type, final String targetName) {
+        final FileInformation info = new FileInformation();
+        eval.eval(ruleId, null, type, targetName, info);
+        return info;
+    }
+
+    /**
+     * The original, linear evaluation of rulesets
+     */
+    private static void reference(final Map<String, Ruleset> sets, final String ruleId, final PayloadEntryType type, final String targetName, final FileInformation info) {
+        final Ruleset set = sets.get(ruleId);
+        for (final Rule rule : set.getRules()) {
+            if (rule.matches(null, type, targetName)) {
+                rule.apply(info);
+                if (rule.isLast()) {
+                    return;
+                }
+            }
+        }
+        if (set.getDefaultRuleset() != null) {
+            reference(sets, set.getDefaultRuleset(), type, targetName, info);
+        }
+    }
+
+    @Test
+    public void testSimple() {
+        final RulesetEvaluator eval = new RulesetEvaluator(asList(
+                ruleset("default", null,
+                        rule("directory", null, null, null, "0755", false),
+                        rule(null, "/etc/", null, "root", "0600", false),
+                        rule(null, null, ".sh", null, "0755", true),
+                        rule(null, null, null, "nobody", null, false))));
+
+        final FileInformation dir = eval(eval, "default", PayloadEntryType.DIRECTORY, "/usr/lib/foo");
+        assertEquals(0755, dir.getMode());
+        assertEquals("nobody", dir.getUser());
+
+        final FileInformation conf = eval(eval, "default", PayloadEntryType.FILE, "/etc/foo.conf");
+        assertEquals(0600, conf.getMode());
+        assertEquals("nobody", conf.getUser());
+
+        final FileInformation script = eval(eval, "default", PayloadEntryType.FILE, "/etc/foo.sh");
+        assertEquals(0755, script.getMode());
+        assertEquals("root", script.getUser());
+    }
+
+    @Test
+    public void testParent() {
+        final RulesetEvaluator eval = new RulesetEvaluator(asList(
+                ruleset("base", null, rule(null, null, null, "root", "0644", false)),
+                ruleset("child", "base", rule(null, "/opt/", null, "app", null, true), rule(null, null, null, null, "0600", false))));
+
+        final FileInformation opt = eval(eval, "child", PayloadEntryType.FILE, "/opt/app/foo");
+        assertEquals("app", opt.getUser());
+
+        final FileInformation other = eval(eval, "child", PayloadEntryType.FILE, "/usr/foo");
+        assertEquals("root", other.getUser());
+        assertEquals(0644, other.getMode());
+    }
+
+    @Test
+    public void testFlags() {
+        final Rule doc = rule(null, "/usr/share/doc/", null, null, null, false);
+        doc.setDocumentation(true);
+        final Rule conf = rule(null, "/etc/", null, null, null, false);
+        conf.setConfiguration(true);
+        conf.setNoreplace(true);
+
+        final RulesetEvaluator eval = new RulesetEvaluator(asList(ruleset("default", null, doc, conf)));
+
+        assertEquals(EnumSet.of(FileFlags.DOC), eval(eval, "default", PayloadEntryType.FILE, "/usr/share/doc/README").getFileFlags());
+        assertEquals(EnumSet.of(FileFlags.CONFIGURATION, FileFlags.NOREPLACE), eval(eval, "default", PayloadEntryType.FILE, "/etc/foo").getFileFlags());
+        // flags of one entry must not leak into the next one
+        assertEquals(EnumSet.of(FileFlags.CONFIGURATION, FileFlags.NOREPLACE), eval(eval, "default", PayloadEntryType.FILE, "/etc/bar").getFileFlags());
+    }
+
+    @Test
+    public void testUnknownRuleset() {
+        final RulesetEvaluator eval = new RulesetEvaluator(asList(ruleset("default", null)));
+        assertThrows(IllegalStateException.class, () -> eval(eval, "other", PayloadEntryType.FILE, "/foo"));
+    }
+
+    @Test
+    public void testUnknownParent() {
+        final RulesetEvaluator eval = new RulesetEvaluator(asList(ruleset("default", "missing", rule(null, "/etc/", null, "root", null, true))));
+
+        // does not reach the parent
+        assertEquals("root", eval(eval, "default", PayloadEntryType.FILE, "/etc/foo").getUser());
+        assertThrows(IllegalStateException.class, () -> eval(eval, "default", PayloadEntryType.FILE, "/usr/foo"));
+    }
+
+    @Test
+    public void testRecursiveParent() {
+        final RulesetEvaluator eval = new RulesetEvaluator(asList(
+                ruleset("a", "b", rule(null, "/etc/", null, "root", null, true)),
+                ruleset("b", "a")));
+
+        assertEquals("root", eval(eval, "a", PayloadEntryType.FILE, "/etc/foo").getUser());
+        assertThrows(IllegalStateException.class, () -> eval(eval, "a", PayloadEntryType.FILE, "/usr/foo"));
+    }
+
+    @Test
+    public void testUnknownType() {
+        final RulesetEvaluator eval = new RulesetEvaluator(asList(ruleset("default", null, rule("foo", "/etc/", null, "root", null, false))));
+
+        // the condition is not evaluated when the prefix does not match
+        eval(eval, "default", PayloadEntryType.FILE, "/usr/foo");
+        assertThrows(IllegalStateException.class, () -> eval(eval, "default", PayloadEntryType.FILE, "/etc/foo"));
+    }
+
+    @Test
+    public void testSameAsLinear() {
+        final Random random = new Random(4711);
+        final String[] prefixes = { null, "", "/", "/etc", "/etc/", "/usr/", "/usr/lib/", "/usr/share/" };
+        final String[] suffixes = { null, "", ".conf", ".sh", "o", "/", "lib" };
+        final String[] types = { null, "file", "directory", "link" };
+        final String[] names = { "/etc/foo.conf", "/etc", "/usr/lib/foo.sh", "/usr/lib", "/usr/share/doc/foo", "/opt/foo", "/" };
+
+        final List<Ruleset> sets = new ArrayList<>();
+        for (int s = 0; s < 3; s++) {
+            final List<Rule> rules = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                rules.add(rule(types[random.nextInt(types.length)], prefixes[random.nextInt(prefixes.length)], suffixes[random.nextInt(suffixes.length)], "user" + s + "-" + i, Integer.toOctalString(random.nextInt(0777)), random.nextInt(10) == 0));
+            }
+            sets.add(ruleset("set" + s, s > 0 ? "set" + (s - 1) : null, rules.toArray(new Rule[0])));
+        }
+
+        final Map<String, Ruleset> map = sets.stream().collect(Collectors.toMap(Ruleset::getId, Function.identity()));
+        final RulesetEvaluator eval = new RulesetEvaluator(sets);
+
+        for (final Ruleset set : sets) {
+            for (final PayloadEntryType type : PayloadEntryType.values()) {
+                for (final String name : names) {
+                    final FileInformation expected = new FileInformation();
+                    reference(map, set.getId(), type, name, expected);
+
+                    final FileInformation actual = eval(eval, set.getId(), type, name);
+
+                    assertEquals(expected.toString(), actual.toString());
+                }
+            }
+        }
+    }
+}
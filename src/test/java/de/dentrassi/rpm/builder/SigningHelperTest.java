@@ -0,0 +1,101 @@
+package de.dentrassi.rpm.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SigningHelperTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Logger logger = new Logger(new SystemStreamLog());
+
+    private final AtomicInteger loaded = new AtomicInteger();
+
+    @After
+    public void clearCache() {
+        SigningHelper.clearCache();
+    }
+
+    /**
+     * Load a key, without parsing the keyring
+     */
+    private PGPPrivateKey load(final InputStream input, final String keyId, final String passphrase) throws PGPException {
+        if (!"secret".equals(passphrase)) {
+            throw new PGPException("checksum mismatch");
+        }
+        this.loaded.incrementAndGet();
+        return new PGPPrivateKey(Long.parseUnsignedLong(keyId, 16), null, null);
+    }
+
+    private static Path createKeyring(final Path directory) throws IOException {
+        return Files.write(directory.resolve("secring.gpg"), new byte[] { 1, 2, 3 });
+    }
+
+    private static Signature signature(final Path keyring, final long keyId, final String passphrase) {
+        final Signature result = new Signature();
+        result.setKeyringFile(keyring.toFile());
+        result.setKeyId(String.format("%016x", keyId));
+        result.setPassphrase(passphrase);
+        return result;
+    }
+
+    @Test
+    public void testSkip() throws Exception {
+        assertNull(SigningHelper.loadKey(null, this.logger));
+
+        final Signature signature = new Signature();
+        signature.setSkip(true);
+        assertNull(SigningHelper.loadKey(signature, this.logger));
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        final Path keyring = createKeyring(this.folder.getRoot().toPath());
+        final long keyId = 0x1234_5678_9ABC_DEF0L;
+
+        final PGPPrivateKey first = SigningHelper.loadKey(signature(keyring, keyId, "secret"), this.logger, this::load);
+        assertEquals(keyId, first.getKeyID());
+        assertEquals(1, this.loaded.get());
+
+        // same file, key and passphrase
+        assertSame(first, SigningHelper.loadKey(signature(keyring, keyId, "secret"), this.logger, this::load));
+
+        // the keyring file changed
+        Files.setLastModifiedTime(keyring, FileTime.fromMillis(Files.getLastModifiedTime(keyring).toMillis() - 10_000));
+        final PGPPrivateKey second = SigningHelper.loadKey(signature(keyring, keyId, "secret"), this.logger, this::load);
+        assertNotSame(first, second);
+        assertSame(second, SigningHelper.loadKey(signature(keyring, keyId, "secret"), this.logger, this::load));
+        assertEquals(2, this.loaded.get());
+    }
+
+    @Test
+    public void testWrongPassphrase() throws Exception {
+        final Path keyring = createKeyring(this.folder.getRoot().toPath());
+        final long keyId = 0x1234_5678_9ABC_DEF0L;
+
+        SigningHelper.loadKey(signature(keyring, keyId, "secret"), this.logger, this::load);
+
+        // a cached key must not be used with a different passphrase
+        assertThrows(MojoExecutionException.class, () -> SigningHelper.loadKey(signature(keyring, keyId, "wrong"), this.logger, this::load));
+    }
+}
@@ -0,0 +1,98 @@
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.cpio.CpioArchiveEntry;
+import org.apache.commons.compress.archivers.cpio.CpioArchiveOutputStream;
+import org.apache.commons.compress.archivers.cpio.CpioConstants;
+import org.eclipse.packager.rpm.RpmTag;
+import org.eclipse.packager.rpm.RpmVersion;
+import org.eclipse.packager.rpm.build.BuilderContext;
+import org.eclipse.packager.rpm.build.BuilderOptions;
+import org.eclipse.packager.rpm.build.RpmBuilder;
+import org.eclipse.packager.rpm.coding.PayloadCoding;
+import org.eclipse.packager.rpm.parse.InputHeader;
+import org.eclipse.packager.rpm.parse.RpmInputStream;
+
+/**
+ * Create RPM files for tests
+ */
+final class TestPackages {
+
+    private TestPackages() {
+    }
+
+    /**
+     * Build a small test package
+     * <p>
+     * The package contains a configuration file, a directory with a file,
+     * and a symbolic link. It requires the symbolic link, which it provides
+     * itself, and {@code bash}.
+     * </p>
+     */
+    static Path build(final Path directory, final String name) throws IOException {
+        return build(directory, name, new BuilderOptions());
+    }
+
+    static Path build(final Path directory, final String name, final BuilderOptions options) throws IOException {
+        try (RpmBuilder builder = new RpmBuilder(name, new RpmVersion("1.0.0", "1"), "noarch", directory, options)) {
+            builder.getInformation().setSummary("Test package");
+            builder.getInformation().setDescription("A package for testing");
+
+            final BuilderContext ctx = builder.newContext();
+            ctx.addFile("/etc/" + name + ".conf", "foo=bar\n".getBytes(UTF_8));
+            ctx.addDirectory("/usr/share/" + name);
+            ctx.addFile("/usr/share/" + name + "/README", "Hello World\n".getBytes(UTF_8));
+            ctx.addSymbolicLink("/usr/bin/" + name, "/usr/share/" + name + "/README");
+
+            builder.addRequirement("/usr/bin/" + name, null);
+            builder.addRequirement("bash", null);
+
+            builder.build();
+            return builder.getTargetFile();
+        }
+    }
+
+    interface PayloadWriter {
+        void write(CpioArchiveOutputStream cpio) throws IOException;
+    }
+
+    /**
+     * Replace the payload of a package
+     * <p>
+     * The lead and headers of the package are kept as they are. The new
+     * payload is written as a gzip compressed CPIO archive, so the package
+     * must have been built with the {@link PayloadCoding#GZIP} coding.
+     * </p>
+     */
+    static void replacePayload(final Path rpm, final PayloadWriter writer) throws IOException {
+        final long payloadStart;
+        try (RpmInputStream in = new RpmInputStream(Files.newInputStream(rpm))) {
+            final InputHeader<RpmTag> header = in.getPayloadHeader();
+            payloadStart = header.getStart() + header.getLength();
+        }
+
+        final byte[] data = Files.readAllBytes(rpm);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(data, 0, (int) payloadStart);
+        try (CpioArchiveOutputStream cpio = new CpioArchiveOutputStream(new GZIPOutputStream(out), CpioConstants.FORMAT_NEW, 512, "UTF-8")) {
+            writer.write(cpio);
+        }
+
+        Files.write(rpm, out.toByteArray());
+    }
+
+    static void addEntry(final CpioArchiveOutputStream cpio, final CpioArchiveEntry entry, final byte[] data) throws IOException {
+        entry.setSize(data.length);
+        cpio.putArchiveEntry(entry);
+        cpio.write(data);
+        cpio.closeArchiveEntry();
+    }
+}
@@ -0,0 +1,217 @@
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.eclipse.packager.rpm.info.RpmInformation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class YumMojoTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static RpmInformation.Dependency dep(final String name) {
+        return new RpmInformation.Dependency(name, null, 0);
+    }
+
+    private static List<String> names(final List<RpmInformation.Dependency> deps) {
+        return deps.stream().map(RpmInformation.Dependency::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPruneRequires() {
+        final RpmInformation info = new RpmInformation();
+        info.setProvides(new ArrayList<>(asList(dep("foo"), dep("foo(x86-64)"))));
+        info.setRequires(new ArrayList<>(asList(dep("/usr/bin/foo"), dep("bash"), dep("foo"), dep("/bin/sh"), dep("libfoo.so.1"))));
+
+        final int dropped = YumMojo.pruneRequires(info, asList("/etc/foo.conf", "/usr/bin/foo"));
+
+        assertEquals(2, dropped);
+        assertEquals(asList("bash", "/bin/sh", "libfoo.so.1"), names(info.getRequires()));
+    }
+
+    @Test
+    public void testPruneRequiresEmpty() {
+        final RpmInformation info = new RpmInformation();
+        info.setRequires(new ArrayList<>());
+
+        assertEquals(0, YumMojo.pruneRequires(info, Collections.singletonList("/usr/bin/foo")));
+        assertEquals(Collections.emptyList(), info.getRequires());
+    }
+
+    private static String readPrimary(final Path output) throws IOException {
+        final Path primary;
+        try (Stream<Path> files = Files.list(output.resolve("repodata"))) {
+            primary = files.filter(p -> p.getFileName().toString().endsWith("primary.xml.gz")).findFirst().get();
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(primary))) {
+            return new String(in.readAllBytes(), UTF_8);
+        }
+    }
+
+    private String makeRepository(final List<File> files, final int threads) throws Exception {
+        return makeRepository(this.folder.newFolder().toPath(), files, threads, false);
+    }
+
+    private String makeRepository(final Path output, final List<File> files, final int threads, final boolean incremental) throws Exception {
+        return makeRepository(output, files, threads, incremental, PackagePlacement.COPY);
+    }
+
+    private String makeRepository(final Path output, final List<File> files, final int threads, final boolean incremental, final PackagePlacement placement) throws Exception {
+        return makeRepository(output, files, threads, incremental, placement, false);
+    }
+
+    private String makeRepository(final Path output, final List<File> files, final int threads, final boolean incremental, final PackagePlacement placement, final boolean checksum) throws Exception {
+        final YumMojo mojo = new YumMojo();
+        mojo.outputDirectory = output.toFile();
+        mojo.files = files;
+        mojo.skipSigning = true;
+        mojo.skipDependencies = true;
+        mojo.setThreads(threads);
+        mojo.setIncremental(incremental);
+        mojo.setPlacement(placement);
+        mojo.setIncrementalChecksum(checksum);
+        mojo.execute();
+
+        for (final File file : files) {
+            assertTrue(Files.isRegularFile(output.resolve("packages").resolve(file.getName())));
+        }
+
+        return readPrimary(output);
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        final Path dir = this.folder.newFolder().toPath();
+        final List<File> files = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            files.add(TestPackages.build(dir, "pkg" + i).toFile());
+        }
+
+        final String expected = makeRepository(files, 1);
+        assertEquals(expected, makeRepository(files, 3));
+        assertTrue(expected.contains("<rpm:entry name=\"bash\"/>"));
+        assertFalse(expected.contains("<rpm:entry name=\"/usr/bin/pkg0\"/>"));
+    }
+
+    @Test
+    public void testIncremental() throws Exception {
+        final Path dir = this.folder.newFolder().toPath();
+        final List<File> files = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            files.add(TestPackages.build(dir, "pkg" + i).toFile());
+        }
+
+        final Path output = this.folder.newFolder().toPath();
+        final String expected = makeRepository(output, files, 1, true);
+        assertTrue(Files.isRegularFile(output.resolve(".packages.index")));
+
+        // unchanged
+        assertEquals(expected, makeRepository(output, files, 2, true));
+
+        // a copy went missing
+        Files.delete(output.resolve("packages").resolve(files.get(1).getName()));
+        assertEquals(expected, makeRepository(output, files, 1, true));
+
+        // removed package
+        final File removed = files.remove(2);
+        final String reduced = makeRepository(output, files, 1, true);
+        assertFalse(reduced.contains("pkg2"));
+        assertFalse(Files.exists(output.resolve("packages").resolve(removed.getName())));
+
+        // changed package
+        Files.setLastModifiedTime(files.get(0).toPath(), FileTime.fromMillis(1_000_000_000_000L));
+        final String changed = makeRepository(output, files, 1, true);
+        assertTrue(changed.contains("file=\"1000000000\""));
+        assertEquals(1_000_000_000_000L, Files.getLastModifiedTime(output.resolve("packages").resolve(files.get(0).getName())).toMillis());
+    }
+
+    @Test
+    public void testPlacement() throws Exception {
+        final Path dir = this.folder.newFolder().toPath();
+        final List<File> files = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            files.add(TestPackages.build(dir, "pkg" + i).toFile());
+        }
+
+        final String expected = makeRepository(files, 1);
+
+        // running twice replaces the existing links
+        final Path output = this.folder.newFolder().toPath();
+        assertEquals(expected, makeRepository(output, files, 2, false, PackagePlacement.HARDLINK));
+        assertEquals(expected, makeRepository(output, files, 2, false, PackagePlacement.HARDLINK));
+
+        for (final File file : files) {
+            assertTrue(Files.isSameFile(file.toPath(), output.resolve("packages").resolve(file.getName())));
+        }
+    }
+
+    /**
+     * Links of a previous run are replaced when changing the placement
+     */
+    @Test
+    public void testIncrementalPlacementChange() throws Exception {
+        final Path dir = this.folder.newFolder().toPath();
+        final List<File> files = Collections.singletonList(TestPackages.build(dir, "pkg").toFile());
+        final Path output = this.folder.newFolder().toPath();
+        final Path copy = output.resolve("packages").resolve(files.get(0).getName());
+
+        makeRepository(output, files, 1, true, PackagePlacement.SYMLINK);
+        assertTrue(Files.isSymbolicLink(copy));
+
+        makeRepository(output, files, 1, true, PackagePlacement.COPY);
+        assertFalse(Files.isSymbolicLink(copy));
+
+        makeRepository(output, files, 1, true, PackagePlacement.HARDLINK);
+        assertTrue(Files.isSameFile(files.get(0).toPath(), copy));
+
+        makeRepository(output, files, 1, true, PackagePlacement.COPY);
+        assertFalse(Files.isSameFile(files.get(0).toPath(), copy));
+        assertArrayEquals(Files.readAllBytes(files.get(0).toPath()), Files.readAllBytes(copy));
+    }
+
+    /**
+     * A package replaced with one of the same size and modification timestamp
+     */
+    @Test
+    public void testIncrementalChecksum() throws Exception {
+        final Path file = TestPackages.build(this.folder.newFolder().toPath(), "pkga");
+        final Path other = TestPackages.build(this.folder.newFolder().toPath(), "pkgb");
+        assertEquals(Files.size(file), Files.size(other));
+
+        final List<File> files = Collections.singletonList(file.toFile());
+        final Path output = this.folder.newFolder().toPath();
+        makeRepository(output, files, 1, true);
+
+        final FileTime lastModified = Files.getLastModifiedTime(file);
+        Files.copy(other, file, StandardCopyOption.REPLACE_EXISTING);
+        Files.setLastModifiedTime(file, lastModified);
+
+        // not detected
+        assertTrue(makeRepository(output, files, 1, true).contains("<name>pkga</name>"));
+
+        assertTrue(makeRepository(output, files, 1, true, PackagePlacement.COPY, true).contains("<name>pkgb</name>"));
+        assertArrayEquals(Files.readAllBytes(other), Files.readAllBytes(output.resolve("packages").resolve(file.getFileName())));
+    }
+}
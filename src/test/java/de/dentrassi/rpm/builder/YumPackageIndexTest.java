@@ -0,0 +1,122 @@
+package de.dentrassi.rpm.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.packager.rpm.info.RpmInformation;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class YumPackageIndexTest {
+
+    private static final Logger LOGGER = new Logger(new SystemStreamLog());
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static BasicFileAttributes attributes(final Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    @Test
+    public void testStoreLoad() throws IOException {
+        final Path file = TestPackages.build(this.folder.newFolder().toPath(), "foo");
+        final YumPackage pkg = YumPackage.read(file, null);
+
+        final YumPackageIndex index = new YumPackageIndex(false);
+        index.put(pkg);
+
+        final Path indexFile = this.folder.getRoot().toPath().resolve("index");
+        index.store(indexFile);
+
+        final YumPackage loaded = YumPackageIndex.load(indexFile, false, LOGGER).get(file, attributes(file));
+        assertNotNull(loaded);
+
+        assertEquals(pkg.getPath().toAbsolutePath(), loaded.getPath());
+        assertEquals(pkg.getSize(), loaded.getSize());
+        assertEquals(pkg.getChecksum(), loaded.getChecksum());
+        assertEquals(pkg.getPayloadNames(), loaded.getPayloadNames());
+
+        final RpmInformation expected = pkg.getInformation();
+        final RpmInformation actual = loaded.getInformation();
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getArchitecture(), actual.getArchitecture());
+        assertEquals(expected.getSummary(), actual.getSummary());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getInstalledSize(), actual.getInstalledSize());
+        assertEquals(expected.getBuildTimestamp(), actual.getBuildTimestamp());
+        assertEquals(expected.getHeaderStart(), actual.getHeaderStart());
+        assertEquals(expected.getHeaderEnd(), actual.getHeaderEnd());
+        assertEquals(expected.getFiles(), actual.getFiles());
+        assertEquals(expected.getDirectories(), actual.getDirectories());
+        assertEquals(expected.getProvides(), actual.getProvides());
+        assertEquals(expected.getRequires(), actual.getRequires());
+        assertEquals(expected.getChangelog(), actual.getChangelog());
+    }
+
+    @Test
+    public void testChanged() throws IOException {
+        final Path file = TestPackages.build(this.folder.newFolder().toPath(), "foo");
+
+        final YumPackageIndex index = new YumPackageIndex(false);
+        index.put(YumPackage.read(file, null));
+        assertNotNull(index.get(file, attributes(file)));
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10_000));
+        assertNull(index.get(file, attributes(file)));
+    }
+
+    @Test
+    public void testSettingsChanged() throws IOException {
+        final Path file = TestPackages.build(this.folder.newFolder().toPath(), "foo");
+
+        final YumPackageIndex index = new YumPackageIndex(false);
+        index.put(YumPackage.read(file, null));
+
+        final Path indexFile = this.folder.getRoot().toPath().resolve("index");
+        index.store(indexFile);
+
+        assertEquals(1, YumPackageIndex.load(indexFile, false, LOGGER).size());
+        assertEquals(0, YumPackageIndex.load(indexFile, true, LOGGER).size());
+    }
+
+    @Test
+    public void testMissing() throws IOException {
+        assertEquals(0, YumPackageIndex.load(this.folder.getRoot().toPath().resolve("missing"), false, LOGGER).size());
+    }
+
+    @Test
+    public void testDamaged() throws IOException {
+        final Path indexFile = this.folder.getRoot().toPath().resolve("index");
+
+        Files.write(indexFile, "garbage".getBytes(UTF_8));
+        assertEquals(0, YumPackageIndex.load(indexFile, false, LOGGER).size());
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        final Path file = TestPackages.build(this.folder.newFolder().toPath(), "foo");
+
+        final YumPackageIndex index = new YumPackageIndex(false);
+        index.put(YumPackage.read(file, null));
+
+        final Path indexFile = this.folder.getRoot().toPath().resolve("index");
+        index.store(indexFile);
+
+        final byte[] data = Files.readAllBytes(indexFile);
+        Files.write(indexFile, Arrays.copyOf(data, data.length / 2));
+        assertEquals(0, YumPackageIndex.load(indexFile, false, LOGGER).size());
+    }
+}
@@ -0,0 +1,110 @@
+package de.dentrassi.rpm.builder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.eclipse.packager.rpm.RpmTag;
+import org.eclipse.packager.rpm.parse.InputHeader;
+import org.eclipse.packager.rpm.parse.RpmInputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class YumPackageTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReadAndCopy() throws IOException {
+        final Path rpm = TestPackages.build(this.folder.newFolder("in").toPath(), "test1");
+        final Path copy = this.folder.newFolder("out").toPath().resolve("test1.rpm");
+
+        final YumPackage pkg = YumPackage.read(rpm, copy);
+
+        assertEquals(DigestUtils.sha256Hex(Files.readAllBytes(rpm)), pkg.getChecksum());
+        assertEquals(Files.size(rpm), pkg.getSize());
+        assertArrayEquals(Files.readAllBytes(rpm), Files.readAllBytes(copy));
+        assertEquals(Files.getLastModifiedTime(rpm), Files.getLastModifiedTime(copy));
+
+        assertEquals("test1", pkg.getInformation().getName());
+        assertTrue(pkg.getInformation().getFiles().contains("/etc/test1.conf"));
+        assertTrue(pkg.getInformation().getDirectories().contains("/usr/share/test1"));
+
+        assertTrue(pkg.getPayloadNames().contains("/etc/test1.conf"));
+        assertTrue(pkg.getPayloadNames().contains("/usr/share/test1"));
+        assertTrue(pkg.getPayloadNames().contains("/usr/bin/test1"));
+    }
+
+    @Test
+    public void testHeaderFileList() throws IOException {
+        final Path rpm = TestPackages.build(this.folder.getRoot().toPath(), "test1");
+
+        final YumPackage payload = YumPackage.read(rpm, null, false);
+        final YumPackage header = YumPackage.read(rpm, null, true);
+
+        assertEquals(payload.getChecksum(), header.getChecksum());
+        assertEquals(new HashSet<>(payload.getPayloadNames()), new HashSet<>(header.getPayloadNames()));
+        assertEquals(payload.getInformation().getFiles(), header.getInformation().getFiles());
+        assertEquals(payload.getInformation().getDirectories(), header.getInformation().getDirectories());
+    }
+
+    @Test
+    public void testHeaderFileListSkipsPayload() throws IOException {
+        final Path rpm = TestPackages.build(this.folder.getRoot().toPath(), "test1");
+
+        // cut off the payload, except for the start of the compressed stream
+
+        final long headerEnd;
+        try (RpmInputStream in = new RpmInputStream(Files.newInputStream(rpm))) {
+            final InputHeader<RpmTag> header = in.getPayloadHeader();
+            headerEnd = header.getStart() + header.getLength();
+        }
+        final byte[] data = Files.readAllBytes(rpm);
+        final Path truncated = this.folder.getRoot().toPath().resolve("truncated.rpm");
+        Files.write(truncated, Arrays.copyOf(data, (int) headerEnd + 32));
+
+        final YumPackage pkg = YumPackage.read(truncated, null, true);
+        assertTrue(pkg.getPayloadNames().contains("/usr/bin/test1"));
+
+        assertThrows(IOException.class, () -> YumPackage.read(truncated, null, false));
+    }
+
+    @Test
+    public void testReadWithoutCopy() throws IOException {
+        final Path rpm = TestPackages.build(this.folder.getRoot().toPath(), "test1");
+
+        final YumPackage pkg = YumPackage.read(rpm, null);
+        assertEquals(DigestUtils.sha256Hex(Files.readAllBytes(rpm)), pkg.getChecksum());
+    }
+
+    @Test
+    public void testExistingCopy() throws IOException {
+        final Path rpm = TestPackages.build(this.folder.newFolder("in").toPath(), "test1");
+        final Path copy = this.folder.newFile("existing.rpm").toPath();
+
+        assertThrows(FileAlreadyExistsException.class, () -> YumPackage.read(rpm, copy));
+        assertTrue(Files.exists(copy));
+    }
+
+    @Test
+    public void testBrokenPackage() throws IOException {
+        final Path rpm = this.folder.newFile("broken.rpm").toPath();
+        Files.write(rpm, new byte[] { 1, 2, 3 });
+        final Path copy = this.folder.getRoot().toPath().resolve("copy.rpm");
+
+        assertThrows(IOException.class, () -> YumPackage.read(rpm, copy));
+        assertFalse(Files.exists(copy));
+    }
+}